@@ -61,6 +61,12 @@ object Pub {
 Pub.Bintray.user = project.property("bintray.user") as String?
 Pub.Bintray.key = project.property("bintray.key") as String?
 
+java {
+    // jdk.jfr events and java.util.concurrent.Flow
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
 repositories {
     jcenter()
 }
@@ -110,6 +116,34 @@ tasks.test {
     systemProperty("org.uncommons.reportng.stylesheet", "${rootDir}/src/test/resources/reportng-custom.css")
     useTestNG {
         listeners.add("org.uncommons.reportng.HTMLReporter")
+        excludeGroups("benchmark", "stress")
+    }
+}
+
+val benchmark by tasks.registering(Test::class) {
+    description = "Runs the benchmark tests."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    testLogging.showStandardStreams = true
+    useTestNG {
+        useDefaultListeners = true  // the Reporter.log results, in build/reports/tests/benchmark
+        includeGroups("benchmark")
+    }
+}
+
+val stress by tasks.registering(Test::class) {
+    description = "Runs the concurrency stress tests, for -Pstress.seconds (default 10)."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    testLogging.showStandardStreams = true
+    if (project.hasProperty("stress.seconds")) {
+        systemProperty("stress.seconds", project.property("stress.seconds") as String)
+    }
+    useTestNG {
+        useDefaultListeners = true  // the Reporter.log results, in build/reports/tests/stress
+        includeGroups("stress")
     }
 }
 
@@ -0,0 +1,424 @@
+package com.ctzen.config;
+
+import com.ctzen.config.exception.ConfigException;
+import groovy.lang.MetaClass;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * How to bind config values to a class's writable bean properties, built once per class.
+ * <p>
+ * Property {@code name} of a bean bound at {@code prefix} is bound from key {@code prefix.name}.
+ * Setters are called through {@link MethodHandle}s, values are converted by converters picked for the property type:
+ * </p>
+ * <ul>
+ *     <li>numbers and Strings to any primitive number type, its wrapper, {@link BigInteger}, or {@link BigDecimal},
+ *     a number that does not fit or has a fraction fails rather than being narrowed</li>
+ *     <li>Booleans and {@code "true"}/{@code "false"} to booleans</li>
+ *     <li>enum constant names to enums</li>
+ *     <li>any value to a String</li>
+ *     <li>other values are set if they are of the property type</li>
+ * </ul>
+ * <p>
+ * A property of a class with a no-arg constructor, outside {@code java.*}, is bound as a nested bean at
+ * {@code prefix.name}, into the instance its getter returns, or into a new instance if any of its keys exist.
+ * A class is not bound as a nested bean of itself, so bean cycles end.
+ * </p>
+ *
+ * @author cchang
+ */
+final class BindingPlan {
+
+    private static final ClassValue<BindingPlan> PLANS = new ClassValue<BindingPlan>() {
+        @Override
+        protected BindingPlan computeValue(final Class<?> type) {
+            return new BindingPlan(type);
+        }
+    };
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    /**
+     * @return the cached plan of {@code type}
+     */
+    static BindingPlan of(final Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    private BindingPlan(final Class<?> type) {
+        this.type = type;
+        this.constructor = constructor(type);
+        final BeanInfo beanInfo;
+        try {
+            beanInfo = Introspector.getBeanInfo(type, Object.class);
+        }
+        catch (final IntrospectionException e) {
+            throw new ConfigException("Cannot bind to " + type.getName(), e);
+        }
+        for (final PropertyDescriptor descriptor : beanInfo.getPropertyDescriptors()) {
+            final Method writeMethod = descriptor.getWriteMethod();
+            if (writeMethod != null && descriptor.getPropertyType() != MetaClass.class) {
+                properties.put(descriptor.getName(), new Property(descriptor.getName(), descriptor.getPropertyType(),
+                        handle(writeMethod).asType(SETTER_TYPE),
+                        descriptor.getReadMethod() == null ? null
+                                                           : handle(descriptor.getReadMethod()).asType(GETTER_TYPE)));
+            }
+        }
+    }
+
+    private final Class<?> type;
+
+    /**
+     * No-arg constructor, null if none.
+     */
+    private final MethodHandle constructor;
+
+    private final Map<String, Property> properties = new HashMap<>();
+
+    private static final class Property {
+
+        Property(final String name, final Class<?> type, final MethodHandle setter, final MethodHandle getter) {
+            this.name = name;
+            this.type = type;
+            this.setter = setter;
+            this.getter = getter;
+            this.converter = converter(type);
+            this.nested = converter == null && !type.isPrimitive() && !type.isArray() && !type.isInterface()
+                          && !Modifier.isAbstract(type.getModifiers()) && !type.getName().startsWith("java.")
+                          && constructor(type) != null;
+        }
+
+        final String name;
+
+        final Class<?> type;
+
+        final MethodHandle setter;
+
+        final MethodHandle getter;
+
+        /**
+         * Null to set values of the property type only.
+         */
+        final Function<Object, Object> converter;
+
+        /**
+         * Bound as a nested bean.
+         */
+        final boolean nested;
+
+    }
+
+    /**
+     * @return a new instance
+     * @throws ConfigException if there is no accessible no-arg constructor
+     */
+    Object newInstance() {
+        if (constructor == null) {
+            throw new ConfigException("Cannot bind to " + type.getName() + ", no accessible no-arg constructor");
+        }
+        try {
+            return (Object)constructor.invokeExact();
+        }
+        catch (final RuntimeException | Error e) {
+            throw e;
+        }
+        catch (final Throwable e) {
+            throw new ConfigException("Cannot create " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Binds every property that has a key.
+     *
+     * @param lookup    value of a key, or {@code absent} if none
+     * @return number of properties set
+     */
+    int bind(final Object bean, final String prefix, final Function<String, Object> lookup, final Object absent) {
+        return bind(bean, prefix, lookup, absent, new HashSet<>());
+    }
+
+    /**
+     * @param enclosing     classes being bound, not bound again as nested beans of themselves
+     */
+    private int bind(final Object bean, final String prefix, final Function<String, Object> lookup,
+                     final Object absent, final Set<Class<?>> enclosing) {
+        enclosing.add(type);
+        int count = 0;
+        for (final Property property : properties.values()) {
+            final String key = prefix + '.' + property.name;
+            final Object value = lookup.apply(key);
+            if (value != absent) {
+                set(bean, property, key, value);
+                count++;
+            }
+            else if (property.nested && !enclosing.contains(property.type)) {
+                count += bindNested(bean, property, key, nestedPlan -> (nested, nestedPrefix) ->
+                        nestedPlan.bind(nested, nestedPrefix, lookup, absent, enclosing));
+            }
+        }
+        enclosing.remove(type);
+        return count;
+    }
+
+    /**
+     * Binds the properties of {@code changedKeys}, the others are left as they are.
+     * A removed key leaves its property as it is.
+     *
+     * @param changedKeys   changed keys under {@code prefix}, their paths relative to {@code prefix}
+     * @return number of properties set
+     */
+    int rebind(final Object bean, final String prefix, final Set<String> changedKeys,
+               final Function<String, Object> lookup, final Object absent) {
+        final Map<Property, Set<String>> nestedChanges = new HashMap<>();
+        int count = 0;
+        for (final String relativeKey : changedKeys) {
+            final int dot = relativeKey.indexOf('.');
+            final Property property = properties.get(dot < 0 ? relativeKey : relativeKey.substring(0, dot));
+            if (property == null) {
+                continue;
+            }
+            final String key = prefix + '.' + property.name;
+            if (dot < 0) {
+                final Object value = lookup.apply(key);
+                if (value != absent) {
+                    set(bean, property, key, value);
+                    count++;
+                }
+            }
+            else if (property.nested) {
+                nestedChanges.computeIfAbsent(property, p -> new HashSet<>())
+                             .add(relativeKey.substring(dot + 1));
+            }
+        }
+        for (final Map.Entry<Property, Set<String>> entry : nestedChanges.entrySet()) {
+            count += bindNested(bean, entry.getKey(), prefix + '.' + entry.getKey().name,
+                    nestedPlan -> (nested, nestedPrefix) ->
+                            nestedPlan.rebind(nested, nestedPrefix, entry.getValue(), lookup, absent));
+        }
+        return count;
+    }
+
+    private interface NestedBind {
+
+        int bind(Object nested, String nestedPrefix);
+
+    }
+
+    private int bindNested(final Object bean, final Property property, final String key,
+                           final Function<BindingPlan, NestedBind> binder) {
+        final BindingPlan nestedPlan = of(property.type);
+        final Object current = property.getter == null ? null : invokeGetter(bean, property, key);
+        final Object nested = current == null ? nestedPlan.newInstance() : current;
+        final int count = binder.apply(nestedPlan).bind(nested, key);
+        if (current == null && count > 0) {
+            invokeSetter(bean, property, key, nested);
+        }
+        return count;
+    }
+
+    private static void set(final Object bean, final Property property, final String key, final Object value) {
+        final Object converted;
+        if (value == null) {
+            if (property.type.isPrimitive()) {
+                throw new ConfigException(cannotBind(property, key) + " from null");
+            }
+            converted = null;
+        }
+        else if (property.converter != null && !property.type.isInstance(value)) {
+            try {
+                converted = property.converter.apply(value);
+            }
+            catch (final RuntimeException e) {
+                throw new ConfigException(cannotBind(property, key) + " from " + value.getClass().getSimpleName(), e);
+            }
+        }
+        else if (wrap(property.type).isInstance(value)) {
+            converted = value;
+        }
+        else {
+            throw new ConfigException(cannotBind(property, key) + " from " + value.getClass().getSimpleName());
+        }
+        invokeSetter(bean, property, key, converted);
+    }
+
+    private static void invokeSetter(final Object bean, final Property property, final String key,
+                                     final Object value) {
+        try {
+            property.setter.invokeExact(bean, value);
+        }
+        catch (final RuntimeException | Error e) {
+            throw e;
+        }
+        catch (final Throwable e) {
+            throw new ConfigException(cannotBind(property, key), e);
+        }
+    }
+
+    private static Object invokeGetter(final Object bean, final Property property, final String key) {
+        try {
+            return (Object)property.getter.invokeExact(bean);
+        }
+        catch (final RuntimeException | Error e) {
+            throw e;
+        }
+        catch (final Throwable e) {
+            throw new ConfigException(cannotBind(property, key), e);
+        }
+    }
+
+    private static String cannotBind(final Property property, final String key) {
+        return "Cannot bind config key '" + key + "' to " + property.type.getSimpleName() + " property '"
+               + property.name + "'";
+    }
+
+    private static MethodHandle constructor(final Class<?> type) {
+        try {
+            return handle(type.getDeclaredConstructor()).asType(CONSTRUCTOR_TYPE);
+        }
+        catch (final NoSuchMethodException | ConfigException e) {
+            return null;
+        }
+    }
+
+    private static MethodHandle handle(final Method method) {
+        try {
+            if (!Modifier.isPublic(method.getDeclaringClass().getModifiers())
+                    || !Modifier.isPublic(method.getModifiers())) {
+                method.setAccessible(true);
+            }
+            return MethodHandles.publicLookup().unreflect(method);
+        }
+        catch (final IllegalAccessException | RuntimeException e) {
+            throw new ConfigException("Cannot access " + method, e);
+        }
+    }
+
+    private static MethodHandle handle(final Constructor<?> constructor) {
+        try {
+            if (!Modifier.isPublic(constructor.getDeclaringClass().getModifiers())
+                    || !Modifier.isPublic(constructor.getModifiers())) {
+                constructor.setAccessible(true);
+            }
+            return MethodHandles.publicLookup().unreflectConstructor(constructor);
+        }
+        catch (final IllegalAccessException | RuntimeException e) {
+            throw new ConfigException("Cannot access " + constructor, e);
+        }
+    }
+
+    /**
+     * @return converter to {@code type}, null if values are set as they are
+     */
+    private static Function<Object, Object> converter(final Class<?> type) {
+        final Class<?> wrapped = wrap(type);
+        if (wrapped == String.class) {
+            return String::valueOf;
+        }
+        if (wrapped == Integer.class) {
+            return value -> value instanceof Number ? (Object)exact((Number)value).intValueExact()
+                                                    : (Object)Integer.valueOf(value.toString().trim());
+        }
+        if (wrapped == Long.class) {
+            return value -> value instanceof Number ? (Object)exact((Number)value).longValueExact()
+                                                    : (Object)Long.valueOf(value.toString().trim());
+        }
+        if (wrapped == Double.class) {
+            return value -> value instanceof Number ? (Object)finite(((Number)value).doubleValue(), (Number)value)
+                                                    : (Object)Double.valueOf(value.toString().trim());
+        }
+        if (wrapped == Float.class) {
+            return value -> value instanceof Number
+                            ? (Object)(float)finite(((Number)value).floatValue(), (Number)value)
+                            : (Object)Float.valueOf(value.toString().trim());
+        }
+        if (wrapped == Short.class) {
+            return value -> value instanceof Number ? (Object)exact((Number)value).shortValueExact()
+                                                    : (Object)Short.valueOf(value.toString().trim());
+        }
+        if (wrapped == Byte.class) {
+            return value -> value instanceof Number ? (Object)exact((Number)value).byteValueExact()
+                                                    : (Object)Byte.valueOf(value.toString().trim());
+        }
+        if (wrapped == BigDecimal.class) {
+            return value -> new BigDecimal(value.toString().trim());
+        }
+        if (wrapped == BigInteger.class) {
+            return value -> value instanceof Number ? exact((Number)value).toBigIntegerExact()
+                                                    : new BigInteger(value.toString().trim());
+        }
+        if (wrapped == Boolean.class) {
+            return value -> {
+                final String s = value.toString().trim();
+                if ("true".equalsIgnoreCase(s) || "false".equalsIgnoreCase(s)) {
+                    return Boolean.valueOf(s);
+                }
+                throw new IllegalArgumentException("Not a boolean: " + s);
+            };
+        }
+        if (wrapped == Character.class) {
+            return value -> {
+                final String s = value.toString();
+                if (s.length() != 1) {
+                    throw new IllegalArgumentException("Not a char: " + s);
+                }
+                return s.charAt(0);
+            };
+        }
+        if (type.isEnum()) {
+            return value -> enumValue(type, value.toString().trim());
+        }
+        return null;
+    }
+
+    /**
+     * @return {@code value} as a BigDecimal, for exact narrowing
+     * @throws NumberFormatException if {@code value} is NaN or infinite
+     */
+    private static BigDecimal exact(final Number value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return BigDecimal.valueOf(value.longValue());
+        }
+        return new BigDecimal(value.toString());
+    }
+
+    /**
+     * @param converted     {@code value} converted to a floating point number
+     * @throws ArithmeticException if a finite {@code value} does not fit
+     */
+    private static double finite(final double converted, final Number value) {
+        if (Double.isInfinite(converted) && !Double.isInfinite(value.doubleValue())) {
+            throw new ArithmeticException("Overflow: " + value);
+        }
+        return converted;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object enumValue(final Class<?> type, final String name) {
+        return Enum.valueOf((Class)type, name);
+    }
+
+    private static Class<?> wrap(final Class<?> type) {
+        return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+    }
+
+}
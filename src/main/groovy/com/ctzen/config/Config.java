@@ -1,18 +1,31 @@
 package com.ctzen.config;
 
 import com.ctzen.config.exception.ConfigException;
+import com.ctzen.config.exception.ConfigValidationException;
 import com.ctzen.config.exception.NoSuchKeyException;
+import com.ctzen.config.jfr.ConfigLazyEvaluationEvent;
+import com.ctzen.config.jfr.ConfigLoadEvent;
+import com.ctzen.config.jfr.ConfigLoaderEvent;
+import com.ctzen.config.jfr.ConfigMissEvent;
+import com.ctzen.config.jfr.ConfigSwapEvent;
+import com.ctzen.config.jmx.ConfigMXBean;
+import com.ctzen.config.jmx.ConfigManagement;
 import com.ctzen.config.loader.GroovyScriptClassLoader;
 import com.ctzen.config.loader.GroovyScriptResourceLoader;
+import com.ctzen.config.loader.JsonLoader;
 import com.ctzen.config.loader.PropertiesLoader;
+import com.ctzen.config.loader.YamlLoader;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
 import groovy.util.ConfigObject;
 import groovy.util.ConfigSlurper;
 import org.codehaus.groovy.runtime.GStringImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.context.EnvironmentAware;
 import org.springframework.context.ResourceLoaderAware;
@@ -23,9 +36,34 @@ import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.PropertiesLoaderUtils;
 
+import javax.management.ObjectName;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -34,18 +72,94 @@ import java.util.stream.StreamSupport;
  *
  * @author cchang
  */
-public class Config implements EnvironmentAware, ResourceLoaderAware, InitializingBean {
+public class Config implements EnvironmentAware, ResourceLoaderAware, InitializingBean, DisposableBean {
 
     private static final Logger LOG = LoggerFactory.getLogger(Config.class);
 
     public Config() {
+        parent = null;
         addLoaders(
                 new PropertiesLoader(),
+                new JsonLoader(),
+                new YamlLoader(),
                 new GroovyScriptClassLoader(),
                 new GroovyScriptResourceLoader()
         );
     }
 
+    /**
+     * Derives a config from a {@code parent}.
+     * <p>
+     * The derived config starts off with the parent's profiles, environment, resource loader, loaders,
+     * and redact keys.<br>
+     * Its {@link #load()} loads only its own locations (the overlay), and applies the entries over the parent's
+     * loaded entries, without the parent's overrides.<br>
+     * Entries not in the overlay are shared with the parent, memory and load time scales with the overlay size.
+     * The first load reports, and logs, only the entries the overlay changes.
+     * </p>
+     * <p>
+     * The parent should be loaded first. Reloading the parent does not reload the derived config.
+     * </p>
+     *
+     * @param parent    the parent config
+     * @see #derive(List)
+     */
+    public Config(final Config parent) {
+        this.parent = Objects.requireNonNull(parent);
+        this.environment = parent.environment;
+        this.resourceLoader = parent.resourceLoader;
+        this.profiles.addAll(parent.profiles);
+        this.combineProfiles = parent.combineProfiles;
+        this.loaders.addAll(parent.loaders);
+        this.redactKeys.addAll(parent.redactKeys);
+        this.interpolateValues = parent.interpolateValues;
+        this.lazyGStrings = parent.lazyGStrings;
+        this.logLoadedValues = parent.logLoadedValues;
+        this.historySize = parent.historySize;
+        this.overlayEnvironment = parent.overlayEnvironment;
+        this.environmentPrefix = parent.environmentPrefix;
+        this.overlaySystemProperties = parent.overlaySystemProperties;
+        this.systemPropertyPrefix = parent.systemPropertyPrefix;
+        this.schema = parent.schema;
+        this.secretKeySource = parent.secretKeySource;
+        this.validator = parent.validator;
+    }
+
+    /*====================================================================================================
+     * PARENT
+     *====================================================================================================*/
+
+    private final Config parent;
+
+    /**
+     * @return the config this config is derived from, or null
+     */
+    public Config getParent() {
+        return parent;
+    }
+
+    /**
+     * Derives a config with overlay locations.
+     *
+     * @param locations     overlay config locations
+     * @return a new, not yet loaded, config
+     * @see #Config(Config)
+     */
+    public Config derive(final List<String> locations) {
+        final Config derived = new Config(this);
+        derived.setLocations(locations);
+        return derived;
+    }
+
+    /**
+     * @param locations     overlay config locations
+     * @return a new, not yet loaded, config
+     * @see #derive(List)
+     */
+    public Config derive(final String... locations) {
+        return derive(Arrays.asList(locations));
+    }
+
     /*====================================================================================================
      * PROFILE NAMES
      *====================================================================================================*/
@@ -146,7 +260,8 @@ public class Config implements EnvironmentAware, ResourceLoaderAware, Initializi
     private final List<String> locations = new LinkedList<>();
 
     /**
-     * @return  config resource locations (does not include those set by META-INF/slurper-configuration.properties)
+     * @return  config resource locations (does not include those set by META-INF/slurper-configuration.properties,
+     *          nor those of the parent)
      */
     public List<String> getLocations() {
         return ImmutableList.copyOf(locations);
@@ -204,9 +319,135 @@ public class Config implements EnvironmentAware, ResourceLoaderAware, Initializi
         addLocations(Arrays.asList(locations));
     }
 
+    /**
+     * Namespace locations, loaded on first read of a key under their prefix.
+     */
+    private Map<String, String> namespaces = Collections.emptyMap();
+
+    /**
+     * Namespaces not read yet.
+     */
+    private volatile List<Namespace> pendingNamespaces = Collections.emptyList();
+
+    /**
+     * Locations of the namespaces read, loaded by {@link #load()}, guarded by {@link #loadLock}.
+     */
+    private final Set<String> namespaceLocations = new LinkedHashSet<>();
+
+    /**
+     * @return key prefix to location of the lazily loaded namespaces
+     */
+    public Map<String, String> getNamespaces() {
+        return namespaces;
+    }
+
+    /**
+     * Lazily loaded namespaces, for large configurations of which a process reads a few parts.
+     * <p>
+     * A namespace location is not loaded by {@link #load()} until a key under its prefix is read, by
+     * {@link #get(String)}, {@link #get(String, Object)}, {@link #getSecretChars(String)} or
+     * {@link #containsKey(String)}. Once read, it is loaded over the other locations, and loaded again by each
+     * later {@link #load()}.<br>
+     * {@link #keySet()} and exports include only the namespaces read.
+     * </p>
+     * <p>
+     * e.g. {@code "features.search" -> "classpath:config/search.gy"},
+     * the prefix may also be written {@code "features.search.*"}
+     * </p>
+     * <p>
+     * Namespaces are not passed on to derived configs, and are not loaded by a config that
+     * {@link #setSubscribeDirectory(Path) subscribes} to snapshots, which hold the namespaces the publisher read.
+     * Default is none.
+     * </p>
+     *
+     * @param namespaces    key prefix to location
+     */
+    public void setNamespaces(final Map<String, String> namespaces) {
+        synchronized (loadLock) {
+            this.namespaces = ImmutableMap.copyOf(namespaces);
+            namespaceLocations.clear();
+            pendingNamespaces = namespaces.entrySet().stream()
+                                          .map(entry -> new Namespace(entry.getKey(), entry.getValue()))
+                                          .collect(ImmutableList.toImmutableList());
+        }
+    }
+
+    private static final class Namespace {
+
+        Namespace(final String prefix, final String location) {
+            this.prefix = prefix.endsWith(".*") ? prefix.substring(0, prefix.length() - 2) : prefix;
+            this.location = location;
+        }
+
+        final String prefix;
+
+        final String location;
+
+        boolean covers(final String key) {
+            return key.startsWith(prefix)
+                    && (key.length() == prefix.length() || key.charAt(prefix.length()) == '.');
+        }
+
+    }
+
+    /**
+     * Loads the pending namespaces that cover {@code key}.
+     */
+    private void loadNamespaces(final String key) {
+        final List<Namespace> pending = pendingNamespaces;
+        if (pending.isEmpty()) {
+            return;
+        }
+        for (final Namespace namespace : pending) {
+            if (namespace.covers(key)) {
+                loadNamespace(namespace);
+            }
+        }
+    }
+
+    /**
+     * Must hold {@link #loadLock}.
+     *
+     * @return {@code true} if {@code key} is under a namespace not loaded yet
+     */
+    private boolean isUnreadNamespaceKey(final String key) {
+        if (subscribeDirectory != null) {
+            return false;   // the snapshot holds what the publisher read
+        }
+        for (final Namespace namespace : pendingNamespaces) {
+            if (!namespaceLocations.contains(namespace.location) && namespace.covers(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void loadNamespace(final Namespace namespace) {
+        if (subscribeDirectory != null) {
+            return;     // a location load would replace the snapshot
+        }
+        synchronized (loadLock) {
+            // a failed location is loaded again by the next load
+            if (!namespaceLocations.add(namespace.location)) {
+                return;     // loaded by another thread, or being loaded by this thread
+            }
+            try {
+                load(namespace.location);
+            }
+            finally {
+                // still pending while loading, so that readers wait
+                pendingNamespaces = pendingNamespaces.stream()
+                                                     .filter(pending -> !pending.location.equals(namespace.location))
+                                                     .collect(ImmutableList.toImmutableList());
+            }
+        }
+    }
+
     private List<String> getEffectiveLocations() {
         List<String> locations = new LinkedList<>();
-        locations.addAll(getSlurperConfigPropertiesLocations());
+        if (parent == null) {   // otherwise loaded by the parent
+            locations.addAll(getSlurperConfigPropertiesLocations());
+        }
         locations.addAll(this.locations);
         return ImmutableList.copyOf(locations);
     }
@@ -346,58 +587,462 @@ public class Config implements EnvironmentAware, ResourceLoaderAware, Initializi
 
     /**
      * Lock and load this config object using the configured profiles and locations.
+     * <p>
+     * Loads are single-flight, see {@link #loadAsync(Executor)}. A call made while another load runs waits for, or
+     * runs, the one follow-up load.
+     * </p>
      */
     public void load() {
-        final long start = System.currentTimeMillis();
-        values.clear();
-        finalizeResourceLoader();
-        List<String> effectiveProfiles = getEffectiveProfiles();
-        LOG.info("Load using profiles: {}", effectiveProfiles);
-        final List<String> effectiveLocations = getEffectiveLocations();
-        if (effectiveLocations.isEmpty()) {
-            LOG.warn("No location to load!");
+        if (Thread.holdsLock(loadLock)) {     // from a change listener
+            load(null);
+            return;
         }
-        else {
-            final ConfigObject configObject = new ConfigObject();
-            effectiveLocations.forEach(location -> loadFromLocation(configObject, location, effectiveProfiles));
-            if (configObject.isEmpty()) {
-                LOG.warn("Nothing is loaded!");
+        final Flight flight = nextFlight();
+        if (flight.after != null) {
+            flight.after.handle((version, e) -> null).join();
+        }
+        flight.run();
+        try {
+            flight.future.join();
+        }
+        catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error)e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Loads in the {@link ForkJoinPool#commonPool() common pool}.
+     *
+     * @see #loadAsync(Executor)
+     */
+    public CompletableFuture<Long> loadAsync() {
+        return loadAsync(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Single-flight load, for reload triggers such as file watchers, admin endpoints and schedules.
+     * <p>
+     * With no load running, a load starts. Otherwise the request joins the one follow-up load, queued to start
+     * when the running load ends, so it sees changes made after the running load started.
+     * However many requests arrive, at most one load runs and one waits.
+     * </p>
+     *
+     * @param executor  runs the load
+     * @return completes with the version the load published, or exceptionally if the load failed
+     */
+    public CompletableFuture<Long> loadAsync(final Executor executor) {
+        final Flight flight = nextFlight();
+        if (flight.after == null) {
+            flight.start(executor);
+        }
+        else if (flight.scheduled.compareAndSet(false, true)) {    // the others only join
+            flight.after.whenComplete((version, e) -> flight.start(executor));
+        }
+        return flight.future;
+    }
+
+    /**
+     * Guards {@link #runningFlight} and {@link #queuedFlight}.
+     */
+    private final Object flightLock = new Object();
+
+    private Flight runningFlight;   // guarded by flightLock
+
+    private Flight queuedFlight;    // guarded by flightLock
+
+    /**
+     * @return the load to join
+     */
+    private Flight nextFlight() {
+        synchronized (flightLock) {
+            if (queuedFlight != null) {
+                return queuedFlight;
+            }
+            if (runningFlight == null) {
+                return runningFlight = new Flight(null);
+            }
+            return queuedFlight = new Flight(runningFlight.future);
+        }
+    }
+
+    /**
+     * A load shared by the callers that joined it, run by whichever of them gets to it first.
+     */
+    private final class Flight {
+
+        Flight(final CompletableFuture<Long> after) {
+            this.after = after;
+        }
+
+        /**
+         * The load this one waits for, null if none.
+         */
+        final CompletableFuture<Long> after;
+
+        final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        /**
+         * Set by the one {@link #loadAsync(Executor)} that starts this flight after {@link #after}.
+         */
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        void start(final Executor executor) {
+            try {
+                executor.execute(this::run);
+            }
+            catch (final RejectedExecutionException e) {
+                run(e);
+            }
+        }
+
+        void run() {
+            run(null);
+        }
+
+        /**
+         * @param rejected  fails the load instead of running it, if not null
+         */
+        private void run(final RejectedExecutionException rejected) {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            synchronized (flightLock) {
+                runningFlight = this;
+                if (queuedFlight == this) {
+                    queuedFlight = null;
+                }
+            }
+            Long version = null;
+            Throwable failure = rejected;
+            if (failure == null) {
+                try {
+                    synchronized (loadLock) {
+                        version = load(null);
+                    }
+                }
+                catch (final Throwable e) {
+                    failure = e;
+                }
+            }
+            synchronized (flightLock) {
+                if (runningFlight == this) {
+                    runningFlight = null;
+                }
+            }
+            // completed outside the locks, dependent stages run on this thread
+            if (failure == null) {
+                future.complete(version);
+            }
+            else {
+                future.completeExceptionally(failure);
+            }
+        }
+
+    }
+
+    /**
+     * Reloads a single location, re-using what the other locations loaded last time.
+     *
+     * @param location  a location loaded by the last {@link #load()}
+     * @throws ConfigException if {@code location} was not loaded, or this config subscribes to snapshots
+     */
+    public void reloadLocation(final String location) {
+        synchronized (loadLock) {
+            if (subscribeDirectory != null) {
+                throw new ConfigException("Cannot reload a location, subscribed to " + subscribeDirectory);
+            }
+            if (layers.stream().noneMatch(layer -> layer.location.equals(location))) {
+                throw new ConfigException("Not a loaded location: " + location);
+            }
+            load(location);
+        }
+    }
+
+    /**
+     * Serializes loads.
+     */
+    private final Object loadLock = new Object();
+
+    /**
+     * What each location loaded last time, in load order.
+     */
+    private List<Layer> layers = Collections.emptyList();
+
+    /**
+     * Profiles used by the last {@link #load()}.
+     */
+    private List<String> loadedProfiles = Collections.emptyList();
+
+    private static class Layer {
+
+        final String location;
+
+        final List<ConfigObject> configObjects;
+
+        final ConfigLocationStats stats;
+
+        final RuntimeException failure;
+
+        Layer(final String location, final List<ConfigObject> configObjects, final ConfigLocationStats stats,
+              final RuntimeException failure) {
+            this.location = location;
+            this.configObjects = configObjects;
+            this.stats = stats;
+            this.failure = failure;
+        }
+
+    }
+
+    /**
+     * @param reloadLocation    location to reload, or null to load all locations
+     * @return the published version
+     */
+    private long load(final String reloadLocation) {
+        final long start = System.currentTimeMillis();
+        final ConfigLoadEvent event = new ConfigLoadEvent();
+        event.begin();
+        final List<Layer> newLayers = new ArrayList<>();
+        final Set<String> changedKeys;
+        try {
+            finalizeResourceLoader();
+            if (parent != null) {
+                addRedactKeys(parent.redactKeys);
+            }
+            final PersistentMap newLoaded;
+            if (reloadLocation == null && subscribeDirectory != null) {
+                watchSnapshots();
+                final SnapshotFiles.Read read = SnapshotFiles.readNewest(subscribeDirectory);
+                loadedProfiles = read.profiles;
+                LOG.info("Load snapshot {} using profiles: {}", read.file, loadedProfiles);
+                addRedactKeys(read.redactKeys);
+                newLoaded = read.entries;
+            }
+            else if (reloadLocation == null) {
+                loadedProfiles = getEffectiveProfiles();
+                LOG.info("Load using profiles: {}", loadedProfiles);
+                final List<String> effectiveLocations = ImmutableList.<String>builder()
+                                                                     .addAll(getEffectiveLocations())
+                                                                     .addAll(namespaceLocations)
+                                                                     .build();
+                event.locationCount = effectiveLocations.size();
+                final String cacheKey = sharedCacheKey(effectiveLocations);
+                if (cacheKey == null) {
+                    newLoaded = loadLocations(effectiveLocations, newLayers).entries;
+                }
+                else {
+                    final Loaded loaded = SharedConfigCache.get(cacheKey,
+                            () -> loadLocations(effectiveLocations, newLayers));
+                    if (loaded.layers != newLayers) {
+                        LOG.info("Loaded from the shared cache");
+                        newLayers.addAll(loaded.layers);
+                        addRedactKeys(loaded.redactKeys);
+                    }
+                    newLoaded = loaded.entries;
+                }
             }
             else {
-                putValues(configObject);
+                LOG.info("Reload {} using profiles: {}", reloadLocation, loadedProfiles);
+                event.locationCount = 1;
+                boolean reloaded = false;
+                for (final Layer layer : layers) {
+                    if (layer.location.equals(reloadLocation)) {
+                        addLayer(newLayers, loadLayer(layer.location, loadedProfiles));
+                        reloaded = true;
+                    }
+                    else {
+                        addLayer(newLayers, layer);
+                    }
+                }
+                if (!reloaded) {    // a namespace read for the first time
+                    addLayer(newLayers, loadLayer(reloadLocation, loadedProfiles));
+                }
+                newLoaded = buildEntries(newLayers).entries;
+            }
+            event.profiles = String.join(",", loadedProfiles);
+            if (validator != null) {
+                validator.validate(newLoaded, redactKeys, this::isUnreadNamespaceKey);
+            }
+            final byte[] encoded = publishDirectory == null ? null
+                    : SnapshotFiles.encode(System.currentTimeMillis(), loadedProfiles, redactKeys, newLoaded);
+            layers = newLayers;     // before the change listeners run
+            changedKeys = publish(newLoaded);
+            event.success = true;
+            if (encoded != null) {
+                try {
+                    LOG.info("Published snapshot {}", SnapshotFiles.write(publishDirectory, encoded));
+                }
+                catch (final ConfigException e) {
+                    LOG.error("Error publishing snapshot", e);     // live locally, subscribers keep the last one
+                }
+            }
+        }
+        finally {
+            updateStats(start, event.success, newLayers);
+            if (event.shouldCommit()) {
+                event.keyCount = values.size();
+                event.derived = parent != null;
+                event.commit();
             }
         }
-        logLoadedValues();
+        logLoadedValues(values, changedKeys);
         LOG.info("Loading took {}ms", System.currentTimeMillis() - start);
+        synchronized (publishLock) {
+            return lastVersion;
+        }
     }
 
-    private void loadFromLocation(final ConfigObject configObject, final String location, final List<String> profiles) {
-        getLoader(location).load(location, profiles).forEach(configObject::merge);
+    /**
+     * Loaded entries, and what they were loaded from.
+     */
+    static final class Loaded {
+
+        final List<Layer> layers;
+
+        final PersistentMap entries;
+
+        /**
+         * Keys of {@link Redact} values.
+         */
+        final Set<String> redactKeys;
+
+        Loaded(final List<Layer> layers, final PersistentMap entries, final Set<String> redactKeys) {
+            this.layers = layers;
+            this.entries = entries;
+            this.redactKeys = redactKeys;
+        }
+
     }
 
     /**
-     * Flattens and finalizes the config values.
+     * @param newLayers     the loaded layers are added, even if a location failed
      */
-    private void putValues(final ConfigObject configObject) {
-        putValues("", configObject);
+    private Loaded loadLocations(final List<String> locations, final List<Layer> newLayers) {
+        for (final String location : locations) {
+            addLayer(newLayers, loadLayer(location, loadedProfiles));
+        }
+        return buildEntries(newLayers);
     }
 
-    private void putValues(final String keyPrefix, final ConfigObject configObject) {
-        @SuppressWarnings("unchecked")
-        final Set<Entry<String,?>> entries = configObject.entrySet();
-        entries.forEach(entry -> {
-            final String key = keyPrefix + entry.getKey();
-            final Object value = entry.getValue();
-            if (value instanceof ConfigObject) {
-                putValues(key + ".", (ConfigObject)value);
+    /**
+     * Merges the layers, and applies the overlay and the {@code ${...}} references.
+     * <p>
+     * Built over the previous version, or over the parent's loaded entries (its overrides are its own),
+     * so unchanged entries keep their nodes and value instances, and the versions in the history share them.
+     * </p>
+     */
+    private Loaded buildEntries(final List<Layer> newLayers) {
+        final PersistentMap previous = snapshot.entries;
+        final PersistentMap.Builder builder = (parent == null ? previous : parent.snapshot.entries).toBuilder()
+                                                                                               .reusing(previous);
+        final Set<String> loadedKeys = parent == null ? new HashSet<>() : null;
+        final Set<String> redacted = new HashSet<>();
+        final Interpolator interpolator = interpolateValues ? new Interpolator(builder) : null;
+        if (newLayers.isEmpty()) {
+            LOG.warn("No location to load!");
+        }
+        else {
+            final LayerMerger merger = new LayerMerger();
+            newLayers.forEach(layer -> layer.configObjects.forEach(merger::merge));
+            if (merger.size() == 0) {
+                LOG.warn("Nothing is loaded!");
             }
             else {
-                put(key, value);
+                merger.forEach((key, value) -> {
+                    if (loadedKeys != null) {
+                        loadedKeys.add(key);
+                    }
+                    if (put(builder, interpolator, key, value) instanceof Encrypted || value instanceof Redact) {
+                        redacted.add(key);
+                    }
+                });
             }
-        });
+        }
+        if (loadedKeys != null) {   // before the overlay and the references see the builder
+            previous.forEach((key, value) -> {
+                if (!loadedKeys.contains(key)) {
+                    builder.remove(key);
+                }
+            });
+        }
+        if (overlayEnvironment || overlaySystemProperties) {
+            final Map<String, Object> overlaid = EnvironmentOverlay.overlay(builder,
+                    overlayEnvironment ? System.getenv() : null, environmentPrefix,
+                    overlaySystemProperties ? System.getProperties() : null, systemPropertyPrefix);
+            overlaid.forEach((key, value) -> {
+                if (put(builder, interpolator, key, value) instanceof Encrypted) {
+                    redacted.add(key);
+                }
+            });
+            if (!overlaid.isEmpty()) {
+                LOG.info("Overlaid from environment and system properties: {}", new TreeSet<>(overlaid.keySet()));
+            }
+        }
+        if (interpolator != null) {
+            interpolator.resolve();
+        }
+        return new Loaded(newLayers, builder.build(), ImmutableSet.copyOf(redacted));
     }
 
-    private final Set<String> redactKeys = new HashSet<>();
+    private static void addLayer(final List<Layer> layers, final Layer layer) {
+        layers.add(layer);
+        if (layer.failure != null) {
+            throw layer.failure;
+        }
+    }
+
+    /**
+     * Loads a location, a failure is returned as a failed layer.
+     */
+    private Layer loadLayer(final String location, final List<String> profiles) {
+        final ConfigLoader loader = getLoader(location);
+        final long start = System.currentTimeMillis();
+        final ConfigLoaderEvent event = new ConfigLoaderEvent();
+        event.begin();
+        final List<ConfigObject> configObjects;
+        try {
+            configObjects = loader.load(location, profiles);
+        }
+        catch (RuntimeException e) {
+            final ConfigLocationStats stats = new ConfigLocationStats(location, loader.getClass().getName(),
+                    ConfigLocationStats.Status.FAILED, String.valueOf(e.getMessage()), 0,
+                    System.currentTimeMillis() - start);
+            return new Layer(location, Collections.emptyList(), stats, e);
+        }
+        event.end();
+        final int keyCount = configObjects.stream().mapToInt(Config::countKeys).sum();
+        if (event.shouldCommit()) {
+            event.location = location;
+            event.loader = loader.getClass();
+            event.profileCount = profiles.size();
+            event.keyCount = keyCount;
+            event.commit();
+        }
+        final ConfigLocationStats stats = new ConfigLocationStats(location, loader.getClass().getName(),
+                keyCount == 0 ? ConfigLocationStats.Status.EMPTY : ConfigLocationStats.Status.LOADED, null,
+                keyCount, System.currentTimeMillis() - start);
+        return new Layer(location, configObjects, stats, null);
+    }
+
+    private static int countKeys(final ConfigObject configObject) {
+        int count = 0;
+        for (final Object value : configObject.values()) {
+            count += value instanceof ConfigObject ? countKeys((ConfigObject)value) : 1;
+        }
+        return count;
+    }
+
+    /**
+     * Only grows, read while loads add to it.
+     */
+    private final Set<String> redactKeys = ConcurrentHashMap.newKeySet();
 
     /**
      * @return keys of config values hidden when logging the loaded entries
@@ -436,48 +1081,641 @@ public class Config implements EnvironmentAware, ResourceLoaderAware, Initializi
         addRedactKeys(Arrays.asList(redactKeys));
     }
 
-    private boolean logLoadedValues = true;
+    private boolean interpolateValues;
 
     /**
-     * After loading, should the finalized config entries be logged?
+     * Should {@code ${key}} references in String config values be resolved when loading?
      *
-     * @return  {@code true} will log
+     * @return  {@code true} to resolve
      */
-    public boolean isLogLoadedValues() {
-        return logLoadedValues;
+    public boolean isInterpolateValues() {
+        return interpolateValues;
     }
 
     /**
-     * After loading, should the finalized config entries be logged?
+     * Should {@code ${key}} references in String config values be resolved when loading?
      * <p>
-     * Useful to know the actual config values.
+     * e.g. with {@code host = 'acme.com'}, {@code url = 'http://${host}/'} is loaded as {@code "http://acme.com/"}.<br>
+     * {@code ${key:default}} falls back to {@code default} if {@code key} is absent,
+     * otherwise references to absent keys are left as is.<br>
+     * References are resolved once, circular references fail the load.
      * </p>
      * <p>
-     * Default is {@code true}
+     * Mostly useful for .properties files, Groovy scripts can reference other values with GStrings.
+     * Leave it off if the values hold placeholders for the Spring {@code Environment}, a {@code ${key:default}}
+     * of a key outside this config would be replaced by its default when loading.
+     * </p>
+     * <p>
+     * A derived config resolves the references in its overlay against the merged entries, the parent's values are
+     * inherited as the parent resolved them, even if the overlay replaces a key they reference.
+     * </p>
+     * <p>
+     * Default is {@code false}
      * </p>
      *
-     * @param logLoadedValues   {@code true} to log
+     * @param interpolateValues     {@code true} to resolve
      */
-    public void setLogLoadedValues(boolean logLoadedValues) {
-        this.logLoadedValues = logLoadedValues;
+    public void setInterpolateValues(boolean interpolateValues) {
+        this.interpolateValues = interpolateValues;
     }
 
-    private void logLoadedValues() {
-        if (logLoadedValues) {
-            final StringBuilder msg = new StringBuilder(values.size() + " config values:");
-            values.forEach((key, value) -> {
-                msg.append("\n    ").append(key);
-                if (redactKeys.contains(key)) {
-                    msg.append(" = <redacted>");
-                }
-                else {
-                    msg.append(" (")
-                       .append(value == null ? "null" : value.getClass().getSimpleName())
-                       .append(") = ")
-                       .append(value);
+    private boolean lazyGStrings;
+
+    /**
+     * Should GString config values be converted to Strings on first access, instead of when loading?
+     *
+     * @return  {@code true} if converted on first access
+     */
+    public boolean isLazyGStrings() {
+        return lazyGStrings;
+    }
+
+    /**
+     * Should GString config values be converted to Strings on first access, instead of when loading?
+     * <p>
+     * For values to be computed on first access, use {@link Lazy} in the config script.<br>
+     * {@code report = new Lazy({ expensiveReport() })}
+     * </p>
+     * <p>
+     * Default is {@code false}
+     * </p>
+     *
+     * @param lazyGStrings  {@code true} to convert on first access
+     */
+    public void setLazyGStrings(boolean lazyGStrings) {
+        this.lazyGStrings = lazyGStrings;
+    }
+
+    private boolean overlayEnvironment;
+
+    /**
+     * @return {@code true} if environment variables overlay the loaded entries
+     */
+    public boolean isOverlayEnvironment() {
+        return overlayEnvironment;
+    }
+
+    /**
+     * Should environment variables overlay the loaded entries?
+     * <p>
+     * An environment variable with the {@link #setEnvironmentPrefix(String) prefix} replaces the entry whose key has
+     * the same relaxed name after the prefix, upper cased with non-alphanumeric characters as {@code _},
+     * e.g. {@code CONFIG_DB_POOL_SIZE} replaces {@code db.pool.size}.
+     * Only loaded keys are replaced, the value is converted to the type of the loaded value: a String, number,
+     * boolean, char or enum. A value that cannot be, e.g. onto a List or a Map, fails the load.
+     * </p>
+     * <p>
+     * Precedence, highest first: overrides, system properties, environment variables, locations.
+     * Applied once per load, lookups are not affected.
+     * </p>
+     * <p>
+     * Default is {@code false}
+     * </p>
+     *
+     * @param overlayEnvironment    {@code true} to overlay
+     */
+    public void setOverlayEnvironment(boolean overlayEnvironment) {
+        this.overlayEnvironment = overlayEnvironment;
+    }
+
+    private String environmentPrefix = "CONFIG_";
+
+    /**
+     * @return prefix of the environment variables overlaying the loaded entries
+     */
+    public String getEnvironmentPrefix() {
+        return environmentPrefix;
+    }
+
+    /**
+     * Prefix of the environment variables overlaying the loaded entries,
+     * so unrelated variables like {@code PATH} or {@code HOME} never replace config keys.
+     * <p>
+     * Default is {@code "CONFIG_"}
+     * </p>
+     *
+     * @param environmentPrefix     {@code ""} to match all environment variables
+     * @see #setOverlayEnvironment(boolean)
+     */
+    public void setEnvironmentPrefix(final String environmentPrefix) {
+        this.environmentPrefix = Objects.requireNonNull(environmentPrefix);
+    }
+
+    private boolean overlaySystemProperties;
+
+    /**
+     * @return {@code true} if system properties overlay the loaded entries
+     */
+    public boolean isOverlaySystemProperties() {
+        return overlaySystemProperties;
+    }
+
+    /**
+     * Should system properties overlay the loaded entries?
+     * <p>
+     * A system property with the {@link #setSystemPropertyPrefix(String) prefix} is matched by relaxed name after
+     * the prefix like {@link #setOverlayEnvironment(boolean)},
+     * e.g. {@code -Dconfig.db.pool.size=20} or {@code -Dconfig.DB_POOL_SIZE=20} replaces {@code db.pool.size}.
+     * </p>
+     * <p>
+     * Default is {@code false}
+     * </p>
+     *
+     * @param overlaySystemProperties   {@code true} to overlay
+     */
+    public void setOverlaySystemProperties(boolean overlaySystemProperties) {
+        this.overlaySystemProperties = overlaySystemProperties;
+    }
+
+    private String systemPropertyPrefix = "config.";
+
+    /**
+     * @return prefix of the system properties overlaying the loaded entries
+     */
+    public String getSystemPropertyPrefix() {
+        return systemPropertyPrefix;
+    }
+
+    /**
+     * Prefix of the system properties overlaying the loaded entries,
+     * so JVM properties like {@code user.name} or {@code java.io.tmpdir} never replace config keys.
+     * <p>
+     * Default is {@code "config."}
+     * </p>
+     *
+     * @param systemPropertyPrefix  {@code ""} to match all system properties
+     * @see #setOverlaySystemProperties(boolean)
+     */
+    public void setSystemPropertyPrefix(final String systemPropertyPrefix) {
+        this.systemPropertyPrefix = Objects.requireNonNull(systemPropertyPrefix);
+    }
+
+    private boolean sharedCache;
+
+    /**
+     * @return {@code true} if loaded entries are shared through the {@link SharedConfigCache}
+     */
+    public boolean isSharedCache() {
+        return sharedCache;
+    }
+
+    /**
+     * Share loaded entries with other configs loading the same locations and profiles, through the {@link SharedConfigCache}.
+     * <p>
+     * Useful when many identical configs are created, e.g. by test suites or multiple Spring contexts,
+     * only the first one runs the loaders. The locations are still resolved, and the resources hashed, on every load.
+     * </p>
+     * <p>
+     * Loaded values are shared, config scripts must produce the same values each time they run,
+     * and the values must not be mutated. Derived configs, and configs with a
+     * {@link #setSecretKeySource(SecretKeySource) secret key source}, are never shared.
+     * </p>
+     * <p>
+     * Default is {@code false}
+     * </p>
+     *
+     * @param sharedCache   {@code true} to share
+     */
+    public void setSharedCache(boolean sharedCache) {
+        this.sharedCache = sharedCache;
+    }
+
+    /**
+     * @return key of the loaded entries in the {@link SharedConfigCache}, null if not sharable
+     */
+    private String sharedCacheKey(final List<String> locations) {
+        if (!sharedCache || parent != null || secretKeySource != null) {
+            return null;
+        }
+        final StringBuilder key = new StringBuilder();
+        key.append(loadedProfiles).append('|')
+           .append(interpolateValues).append(',').append(lazyGStrings).append('|')
+           .append(overlayEnvironment ? environmentPrefix + System.getenv().hashCode() : 0).append(',')
+           .append(overlaySystemProperties ? systemPropertyPrefix + System.getProperties().hashCode() : 0);
+        for (final String location : locations) {
+            final ConfigLoader loader = getLoader(location);
+            final String fingerprint = loader.fingerprint(location, loadedProfiles);
+            if (fingerprint == null) {
+                return null;
+            }
+            key.append('|').append(location).append('|').append(loader.getClass().getName())
+               .append('|').append(fingerprint);
+        }
+        return key.toString();
+    }
+
+    private Path publishDirectory;
+
+    /**
+     * @return directory loaded entries are published to, null if none
+     */
+    public Path getPublishDirectory() {
+        return publishDirectory;
+    }
+
+    /**
+     * Publish loaded entries to a directory shared with other processes on the host, which
+     * {@link #setSubscribeDirectory(Path) subscribe} to it instead of running the loaders.
+     * <p>
+     * Each load writes a new snapshot file there, after a successful local publish. The newest few files are kept.
+     * {@link Lazy} values are evaluated when written, a value of a type other than the loaded scalars, lists, maps
+     * and {@link Encrypted} fails the load, and the previous entries stay live. Overrides are not published.
+     * </p>
+     * <p>
+     * Default is none
+     * </p>
+     *
+     * @param publishDirectory  null for none
+     */
+    public void setPublishDirectory(final Path publishDirectory) {
+        this.publishDirectory = publishDirectory;
+    }
+
+    private Path subscribeDirectory;
+
+    /**
+     * @return directory entries are loaded from, null if none
+     */
+    public Path getSubscribeDirectory() {
+        return subscribeDirectory;
+    }
+
+    /**
+     * Load the newest snapshot {@link #setPublishDirectory(Path) published} to a directory, instead of the locations.
+     * <p>
+     * The snapshot file is memory-mapped, so processes on the same host share one copy of the values through the
+     * page cache. Keys are read into the heap; strings, big numbers, lists and maps are decoded on first access.
+     * A corrupt file is skipped for the next newest one.
+     * Profiles and redact keys come from the publisher.
+     * {@link #setNamespaces(Map) Namespaces} are not loaded, and {@link #reloadLocation(String)} fails.
+     * </p>
+     * <p>
+     * The first load starts watching the directory, a new snapshot file reloads this config.
+     * Call {@link #destroy()} to stop watching.
+     * </p>
+     * <p>
+     * Default is none
+     * </p>
+     *
+     * @param subscribeDirectory    null for none
+     */
+    public void setSubscribeDirectory(final Path subscribeDirectory) {
+        this.subscribeDirectory = subscribeDirectory;
+    }
+
+    private volatile WatchService snapshotWatcher;
+
+    /**
+     * Must hold {@link #loadLock}.
+     */
+    private void watchSnapshots() {
+        if (snapshotWatcher != null) {
+            return;
+        }
+        final WatchService watcher;
+        try {
+            Files.createDirectories(subscribeDirectory);
+            watcher = subscribeDirectory.getFileSystem().newWatchService();
+            subscribeDirectory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE);
+        }
+        catch (final IOException e) {
+            throw new ConfigException("Error watching snapshots in " + subscribeDirectory, e);
+        }
+        snapshotWatcher = watcher;
+        final Thread thread = new Thread(() -> watchSnapshots(watcher), "config-snapshot-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watchSnapshots(final WatchService watcher) {
+        try {
+            while (true) {
+                final WatchKey watchKey = watcher.take();
+                final boolean published = watchKey.pollEvents().stream()
+                        .anyMatch(e -> e.context() instanceof Path && SnapshotFiles.isSnapshot((Path)e.context()));
+                watchKey.reset();
+                if (published) {
+                    loadAsync(Runnable::run).exceptionally(e -> {
+                        LOG.error("Error loading the new snapshot", e);
+                        return null;
+                    });
                 }
-            });
-            LOG.info(msg.toString());
+            }
+        }
+        catch (final InterruptedException | ClosedWatchServiceException e) {
+            LOG.debug("Stopped watching snapshots");
+        }
+    }
+
+    /**
+     * Stops watching the {@link #setSubscribeDirectory(Path) subscribed directory}, and
+     * {@link #unregisterMBean() unregisters} the MBean.
+     */
+    @Override
+    public void destroy() {
+        unregisterMBean();
+        final WatchService watcher = snapshotWatcher;
+        if (watcher != null) {
+            snapshotWatcher = null;
+            try {
+                watcher.close();
+            }
+            catch (final IOException e) {
+                LOG.warn("Error closing the snapshot watcher", e);
+            }
+        }
+    }
+
+    private SecretKeySource secretKeySource;
+
+    /**
+     * @return decrypts {@link Encrypted} values, null if none
+     */
+    public SecretKeySource getSecretKeySource() {
+        return secretKeySource;
+    }
+
+    /**
+     * Also makes String values of the form {@code ENC(...)}, e.g. from properties files, {@link Encrypted}.
+     * Without a key source they are plain Strings, so values that happen to look like that still load.
+     * Set before loading.
+     *
+     * @param secretKeySource   decrypts {@link Encrypted} values, on their first access
+     */
+    public void setSecretKeySource(final SecretKeySource secretKeySource) {
+        this.secretKeySource = secretKeySource;
+    }
+
+    private char[] decrypt(final String key, final Encrypted encrypted) {
+        if (secretKeySource == null) {
+            throw new ConfigException("No secret key source to decrypt config key '" + key + "'");
+        }
+        try {
+            return encrypted.decrypt(secretKeySource);
+        }
+        catch (RuntimeException e) {
+            throw new ConfigException("Error decrypting config key '" + key + "'", e);
+        }
+    }
+
+    /**
+     * Wipes the decrypted {@link Encrypted} values, in the current and the kept versions.
+     * They are decrypted again when accessed.
+     */
+    public void wipeSecrets() {
+        final BiConsumer<String, Object> wipe = (key, value) -> {
+            if (value instanceof Encrypted) {
+                ((Encrypted)value).wipe();
+            }
+        };
+        synchronized (publishLock) {
+            values.forEach(wipe);
+            history.forEach(snapshot -> snapshot.entries.forEach(wipe));
+        }
+    }
+
+    private ConfigSchema schema;
+
+    private ConfigValidator validator;
+
+    /**
+     * @return schema checked before publishing, null if none
+     */
+    public ConfigSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Checks loaded entries against the schema before publishing them.
+     * <p>
+     * An invalid load fails with a {@link ConfigValidationException} reporting all violations,
+     * the previous entries stay live. Overrides are checked too.
+     * Required keys under a {@link #setNamespaces(Map) namespace} not read yet are checked once it is loaded.
+     * </p>
+     * <p>
+     * The schema is compiled here, later changes to it are ignored.
+     * </p>
+     *
+     * @param schema    null for no checks
+     */
+    public void setSchema(final ConfigSchema schema) {
+        this.schema = schema;
+        this.validator = schema == null ? null : new ConfigValidator(schema);
+    }
+
+    private boolean logLoadedValues = true;
+
+    /**
+     * After loading, should the finalized config entries be logged?
+     *
+     * @return  {@code true} will log
+     */
+    public boolean isLogLoadedValues() {
+        return logLoadedValues;
+    }
+
+    /**
+     * After loading, should the finalized config entries be logged?
+     * <p>
+     * Useful to know the actual config values.
+     * The first load logs all entries, later loads log only the changed entries.
+     * </p>
+     * <p>
+     * Default is {@code true}
+     * </p>
+     *
+     * @param logLoadedValues   {@code true} to log
+     */
+    public void setLogLoadedValues(boolean logLoadedValues) {
+        this.logLoadedValues = logLoadedValues;
+    }
+
+    /**
+     * Max entries per log message.
+     */
+    private static final int LOG_CHUNK_SIZE = 500;
+
+    /**
+     * Logs the changed entries, all of them on the first load, in messages of at most {@link #LOG_CHUNK_SIZE} entries.
+     */
+    private void logLoadedValues(final PersistentMap values, final Set<String> changedKeys) {
+        if (!logLoadedValues) {
+            return;
+        }
+        final String what = changedKeys.size() == values.size() ? "config values" : "changed config values";
+        if (changedKeys.isEmpty()) {
+            LOG.info("0 {} of {}", what, values.size());
+            return;
+        }
+        final StringBuilder msg = new StringBuilder();
+        int from = 1;
+        int count = 0;
+        for (final String key : changedKeys) {
+            appendEntry(msg, key, values.get(key, PersistentMap.ABSENT));
+            if (++count % LOG_CHUNK_SIZE == 0 || count == changedKeys.size()) {
+                LOG.info("{} {}-{} of {}:{}", what, from, count, changedKeys.size(), msg);
+                msg.setLength(0);
+                from = count + 1;
+            }
+        }
+    }
+
+    private void appendEntry(final StringBuilder msg, final String key, final Object loadedValue) {
+        final Object value = SnapshotFiles.decoded(loadedValue);
+        msg.append("\n    ").append(key);
+        if (value == PersistentMap.ABSENT) {
+            msg.append(" removed");
+        }
+        else if (redactKeys.contains(key)) {
+            msg.append(" = ").append(ConfigExporter.REDACTED);
+        }
+        else {
+            msg.append(" (")
+               .append(value == null ? "null" : value.getClass().getSimpleName())
+               .append(") = ")
+               .append(value);
+        }
+    }
+
+    /**
+     * Builds one string of all entries, use {@link #export(Writer, ExportFormat)} for large configs.
+     *
+     * @return all config entries with their types, one per line, values of {@link #getRedactKeys()} are hidden
+     */
+    public String dumpRedacted() {
+        final PersistentMap values = this.values;
+        final StringBuilder msg = new StringBuilder(values.size() + " config values:");
+        sortedKeys(values).forEach(key -> appendEntry(msg, key, values.get(key, null)));
+        return msg.toString();
+    }
+
+    /**
+     * Writes all config entries, sorted by key, from a consistent snapshot.
+     * <p>
+     * Values of {@link #getRedactKeys()} are written as {@code <redacted>},
+     * {@link Lazy} values are evaluated.
+     * </p>
+     *
+     * @param writer    not closed, flushed at the end
+     * @param format    output format
+     * @throws IOException if writing failed
+     */
+    public void export(final Writer writer, final ExportFormat format) throws IOException {
+        final PersistentMap values = this.values;
+        final ConfigExporter exporter = new ConfigExporter(writer, format, redactKeys);
+        exporter.begin();
+        for (final String key : sortedKeys(values)) {
+            final Object value = values.get(key, null);
+            exporter.entry(key, redactKeys.contains(key) ? null : evaluate(key, value));
+        }
+        exporter.end();
+    }
+
+    /**
+     * {@link #export(Writer, ExportFormat)} in UTF-8.
+     *
+     * @param out       not closed, flushed at the end
+     * @param format    output format
+     * @throws IOException if writing failed
+     */
+    public void export(final OutputStream out, final ExportFormat format) throws IOException {
+        export(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), format);
+    }
+
+    private static Set<String> sortedKeys(final PersistentMap values) {
+        return ImmutableSortedSet.copyOf(values.keys());
+    }
+
+    /*====================================================================================================
+     * STATS
+     *====================================================================================================*/
+
+    private volatile ConfigStats stats = ConfigStats.NONE;
+
+    private long loadCount;         // guarded by loadLock
+
+    private long loadFailureCount;  // guarded by loadLock
+
+    /**
+     * @return statistics as of the last load
+     */
+    public ConfigStats getStats() {
+        return stats;
+    }
+
+    private void updateStats(final long start, final boolean success, final List<Layer> attempted) {
+        ++loadCount;
+        if (!success) {
+            ++loadFailureCount;
+        }
+        stats = new ConfigStats(values.size(), start, System.currentTimeMillis() - start, loadCount, loadFailureCount,
+                attempted.stream().map(layer -> layer.stats).collect(Collectors.toList()));
+    }
+
+    private volatile boolean countLookups;
+
+    private final LongAdder lookupHits = new LongAdder();
+
+    private final LongAdder lookupMisses = new LongAdder();
+
+    /**
+     * @return {@code true} if lookups are counted
+     */
+    public boolean isCountLookups() {
+        return countLookups;
+    }
+
+    /**
+     * Count lookup hits and misses.
+     * <p>
+     * Default is {@code false}, enabled by {@link #registerMBean(String)}.
+     * </p>
+     *
+     * @param countLookups  {@code true} to count
+     */
+    public void setCountLookups(final boolean countLookups) {
+        this.countLookups = countLookups;
+    }
+
+    /**
+     * @return number of lookups of present keys, since {@link #setCountLookups(boolean)}
+     */
+    public long getLookupHitCount() {
+        return lookupHits.sum();
+    }
+
+    /**
+     * @return number of lookups of absent keys, since {@link #setCountLookups(boolean)}
+     */
+    public long getLookupMissCount() {
+        return lookupMisses.sum();
+    }
+
+    private ObjectName mbeanName;
+
+    /**
+     * Registers a {@link ConfigMXBean} for this config with the platform MBean server.
+     *
+     * @param name  name of this config, unique within the JVM
+     * @return the MBean object name, {@code com.ctzen.config:type=Config,name=<name>}
+     * @throws ConfigException if registration failed
+     */
+    public synchronized ObjectName registerMBean(final String name) {
+        if (mbeanName != null) {
+            throw new ConfigException("MBean already registered: " + mbeanName);
+        }
+        setCountLookups(true);
+        mbeanName = ConfigManagement.register(this, name);
+        return mbeanName;
+    }
+
+    /**
+     * Unregisters the MBean registered by {@link #registerMBean(String)}, if any.
+     */
+    public synchronized void unregisterMBean() {
+        if (mbeanName != null) {
+            ConfigManagement.unregister(mbeanName);
+            mbeanName = null;
         }
     }
 
@@ -486,21 +1724,469 @@ public class Config implements EnvironmentAware, ResourceLoaderAware, Initializi
      *====================================================================================================*/
 
     /**
-     * THE loaded config entries.
+     * THE config entries, i.e. the loaded entries with the overrides applied.
+     * <p>
+     * Immutable, replaced as a whole by {@link #load()}, {@link #override(String, Object)},
+     * and {@link #clearOverride(String)}.
+     * </p>
+     */
+    private volatile PersistentMap values = PersistentMap.EMPTY;
+
+    /**
+     * The entries as loaded, without the overrides.
+     */
+    private volatile ConfigSnapshot snapshot = new ConfigSnapshot(0, 0, Collections.emptyList(), PersistentMap.EMPTY);
+
+    /**
+     * Guards {@link #values}, {@link #snapshot}, {@link #history}, and {@link #overrides} updates. Reads are lock free.
+     */
+    private final Object publishLock = new Object();
+
+    private static final Object MISSING = new Object();
+
+    /**
+     * @return the value put
      */
-    private final Map<String, Object> values = new TreeMap<>();
+    private Object put(final PersistentMap.Builder builder, final Interpolator interpolator,
+                       final String key, final Object value) {
+        final Object finalValue = finalizeValue(key, value);
+        builder.put(key, finalValue);
+        if (interpolator != null) {
+            interpolator.add(key, finalValue);
+        }
+        return finalValue;
+    }
 
-    private void put(final String key, Object value) {
+    private Object finalizeValue(final String key, Object value) {
         if (value instanceof Redact) {
             addRedactKeys(key);
             value = ((Redact<?>)value).getValue();
         }
         if (value instanceof GStringImpl) {
-            value = value.toString();
+            final GStringImpl gstring = (GStringImpl)value;
+            value = lazyGStrings ? Lazy.of(gstring) : gstring.toString();
+        }
+        if (secretKeySource != null && value instanceof String && Encrypted.isEncrypted((String)value)) {
+            value = Encrypted.of((String)value);
+        }
+        if (value instanceof Encrypted) {
+            addRedactKeys(key);
+        }
+        return value;
+    }
+
+    /**
+     * Computes a {@link Lazy} value, decrypts an {@link Encrypted} value.
+     */
+    private Object evaluate(final String key, final Object value) {
+        if (value instanceof Encrypted) {
+            final char[] chars = decrypt(key, (Encrypted)value);
+            try {
+                return new String(chars);
+            }
+            finally {
+                Arrays.fill(chars, '\0');
+            }
+        }
+        if (value instanceof SnapshotFiles.MappedValue) {
+            return SnapshotFiles.decoded(value);     // not a config script Lazy, no event
+        }
+        if (value instanceof Lazy) {
+            final Lazy<?> lazy = (Lazy<?>)value;
+            if (lazy.isEvaluated()) {
+                return lazy.getValue();
+            }
+            final ConfigLazyEvaluationEvent event = new ConfigLazyEvaluationEvent();
+            event.begin();
+            try {
+                return lazy.getValue();
+            }
+            catch (RuntimeException e) {
+                throw new ConfigException("Error evaluating config key '" + key + "'", e);
+            }
+            finally {
+                if (event.shouldCommit()) {
+                    event.key = key;
+                    event.commit();
+                }
+            }
+        }
+        return value;
+    }
+
+    private int missCount;  // racy, only for sampling
+
+    private void countHit() {
+        if (countLookups) {
+            lookupHits.increment();
+        }
+    }
+
+    private void countMiss(final String key) {
+        if (countLookups) {
+            lookupMisses.increment();
+        }
+        final ConfigMissEvent event = new ConfigMissEvent();
+        if (event.isEnabled() && ++missCount % ConfigMissEvent.SAMPLE_INTERVAL == 0) {
+            event.key = key;
+            event.commit();
+        }
+    }
+
+    /**
+     * Publishes newly loaded entries as a new version, with the overrides re-applied.
+     *
+     * @return keys whose values changed
+     */
+    private Set<String> publish(final PersistentMap newLoaded) {
+        final Set<String> changedKeys;
+        synchronized (publishLock) {
+            // a derived config starts off with its parent's entries, its first load reports and logs its overlay
+            final PersistentMap from = parent != null && lastVersion == 0
+                    ? withOverrides(parent.snapshot.entries) : values;
+            final ConfigSnapshot newSnapshot = new ConfigSnapshot(++lastVersion, System.currentTimeMillis(),
+                    loadedProfiles, newLoaded);
+            history.addFirst(newSnapshot);
+            while (history.size() > historySize) {
+                history.removeLast();
+            }
+            snapshot = newSnapshot;
+            changedKeys = swapValues("load", from, withOverrides(newLoaded));
+        }
+        fireConfigChanged(changedKeys);
+        return changedKeys;
+    }
+
+    /**
+     * Must hold {@link #publishLock}.
+     *
+     * @return keys whose values changed
+     */
+    private Set<String> restore(final ConfigSnapshot newSnapshot, final String cause) {
+        snapshot = newSnapshot;
+        return swapValues(cause, withOverrides(newSnapshot.entries));
+    }
+
+    /**
+     * Must hold {@link #publishLock}.
+     *
+     * @return {@code entries} with the overrides applied
+     */
+    private PersistentMap withOverrides(final PersistentMap entries) {
+        if (overrides.isEmpty()) {
+            return entries;
+        }
+        final PersistentMap.Builder builder = entries.toBuilder();
+        overrides.forEach(builder::put);
+        return builder.build();
+    }
+
+    /**
+     * Must hold {@link #publishLock}.
+     *
+     * @param cause     for the {@link ConfigSwapEvent}
+     * @return keys whose values changed
+     */
+    private Set<String> swapValues(final String cause, final PersistentMap newValues) {
+        return swapValues(cause, values, newValues);
+    }
+
+    /**
+     * Must hold {@link #publishLock}.
+     *
+     * @param cause     for the {@link ConfigSwapEvent}
+     * @param from      diffed against {@code newValues} for the changed keys
+     * @return keys whose values changed
+     */
+    private Set<String> swapValues(final String cause, final PersistentMap from, final PersistentMap newValues) {
+        final ConfigSwapEvent event = new ConfigSwapEvent();
+        event.begin();
+        final Set<String> changedKeys = new TreeSet<>();
+        if (!listeners.isEmpty() || event.isEnabled() || logLoadedValues) {
+            from.diff(newValues, (key, fromValue, toValue) -> changedKeys.add(key));
+        }
+        values = newValues;
+        if (event.shouldCommit()) {
+            event.cause = cause;
+            event.keyCount = newValues.size();
+            event.changedKeyCount = changedKeys.size();
+            event.commit();
+        }
+        return changedKeys;
+    }
+
+    /*====================================================================================================
+     * OVERRIDES
+     *====================================================================================================*/
+
+    /**
+     * Runtime overrides, small and replaced as a whole.
+     */
+    private volatile PersistentMap overrides = PersistentMap.EMPTY;
+
+    /**
+     * Overrides a config value at runtime, without reloading.
+     * <p>
+     * The override sits above the loaded entries and survives {@link #load()} until cleared.
+     * Config change listeners are notified.
+     * </p>
+     *
+     * @param key       config key
+     * @param value     overriding value, may be a {@link Redact}
+     */
+    public void override(final String key, final Object value) {
+        final Set<String> changedKeys;
+        synchronized (publishLock) {
+            final Object finalValue = finalizeValue(key, value);
+            if (validator != null) {
+                validator.validate(key, finalValue, redactKeys.contains(key));
+            }
+            overrides = overrides.plus(key, finalValue);
+            changedKeys = swapValues("override", values.plus(key, finalValue));
+        }
+        fireConfigChanged(changedKeys);
+    }
+
+    /**
+     * Clears an override, the loaded value (if any) is restored.
+     * Config change listeners are notified.
+     *
+     * @param key   config key
+     */
+    public void clearOverride(final String key) {
+        final Set<String> changedKeys;
+        synchronized (publishLock) {
+            if (!overrides.containsKey(key)) {
+                return;
+            }
+            overrides = overrides.minus(key);
+            final Object loadedValue = snapshot.entries.get(key, MISSING);
+            changedKeys = swapValues("clearOverride",
+                    loadedValue == MISSING ? values.minus(key) : values.plus(key, loadedValue));
+        }
+        fireConfigChanged(changedKeys);
+    }
+
+    /**
+     * Clears all overrides.
+     *
+     * @see #clearOverride(String)
+     */
+    public void clearOverrides() {
+        final Set<String> changedKeys;
+        synchronized (publishLock) {
+            if (overrides.isEmpty()) {
+                return;
+            }
+            overrides = PersistentMap.EMPTY;
+            changedKeys = swapValues("clearOverrides", snapshot.entries);
+        }
+        fireConfigChanged(changedKeys);
+    }
+
+    /**
+     * @return the current overrides, sorted by key
+     */
+    public Map<String, Object> getOverrides() {
+        final Map<String, Object> ret = new TreeMap<>();
+        overrides.forEach(ret::put);
+        return Collections.unmodifiableMap(ret);
+    }
+
+    /*====================================================================================================
+     * HISTORY
+     *====================================================================================================*/
+
+    private int historySize = 10;
+
+    /**
+     * Loaded versions, newest first.
+     */
+    private final Deque<ConfigSnapshot> history = new ArrayDeque<>();
+
+    private long lastVersion;   // guarded by publishLock
+
+    /**
+     * @return max number of versions kept
+     */
+    public int getHistorySize() {
+        return historySize;
+    }
+
+    /**
+     * Max number of loaded versions kept for {@link #rollback(long)} and {@link #diff(long, long)}.
+     * <p>
+     * Versions share unchanged entries, an extra version costs about the size of its changes.
+     * </p>
+     * <p>
+     * Default is {@code 10}
+     * </p>
+     *
+     * @param historySize   at least 1
+     */
+    public void setHistorySize(final int historySize) {
+        if (historySize < 1) {
+            throw new ConfigException("History size must be at least 1: " + historySize);
+        }
+        synchronized (publishLock) {
+            this.historySize = historySize;
+            while (history.size() > historySize) {
+                history.removeLast();
+            }
+        }
+    }
+
+    /**
+     * @return the current version, without the overrides
+     */
+    public ConfigSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return the kept versions, newest first
+     */
+    public List<ConfigSnapshot> getHistory() {
+        synchronized (publishLock) {
+            return ImmutableList.copyOf(history);
+        }
+    }
+
+    /**
+     * Makes a kept version current again, without reloading.
+     * <p>
+     * The overrides stay applied. Config change listeners are notified.
+     * The version stays in the history, the next load gets a new version number.
+     * {@link #reloadLocation(String)} still works on what the last load loaded.
+     * </p>
+     *
+     * @param version   a version in {@link #getHistory()}
+     * @throws ConfigException if the version is not kept
+     */
+    public void rollback(final long version) {
+        final Set<String> changedKeys;
+        synchronized (publishLock) {
+            changedKeys = restore(findSnapshot(version), "rollback");
+        }
+        LOG.info("Rolled back to version {}", version);
+        fireConfigChanged(changedKeys);
+        logLoadedValues(values, changedKeys);
+    }
+
+    /**
+     * Rolls back to the version before the current one.
+     *
+     * @throws ConfigException if there is no earlier version kept
+     */
+    public void rollback() {
+        final long version;
+        synchronized (publishLock) {
+            final long current = snapshot.getVersion();
+            version = history.stream()
+                             .mapToLong(ConfigSnapshot::getVersion)
+                             .filter(v -> v < current)
+                             .findFirst()
+                             .orElseThrow(() -> new ConfigException("No config version before " + current));
+        }
+        rollback(version);
+    }
+
+    /**
+     * @param fromVersion   a version in {@link #getHistory()}
+     * @param toVersion     a version in {@link #getHistory()}
+     * @return changes between the versions, overrides are not included
+     * @throws ConfigException if a version is not kept
+     */
+    public ConfigDiff diff(final long fromVersion, final long toVersion) {
+        final ConfigSnapshot from;
+        final ConfigSnapshot to;
+        synchronized (publishLock) {
+            from = findSnapshot(fromVersion);
+            to = findSnapshot(toVersion);
+        }
+        return from.diff(to);
+    }
+
+    /**
+     * Must hold {@link #publishLock}.
+     */
+    private ConfigSnapshot findSnapshot(final long version) {
+        for (final ConfigSnapshot s : history) {
+            if (s.getVersion() == version) {
+                return s;
+            }
+        }
+        throw new ConfigException("No such config version: " + version);
+    }
+
+    /*====================================================================================================
+     * CHANGE LISTENERS
+     *====================================================================================================*/
+
+    private final List<ConfigChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Listens to config changes caused by {@link #load()} and overrides.
+     * <p>
+     * Listeners are called on the thread making the change, after the change is visible.
+     * </p>
+     *
+     * @param listener  config change listener
+     */
+    public void addChangeListener(final ConfigChangeListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * @param listener  config change listener to remove
+     */
+    public void removeChangeListener(final ConfigChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @param prefix    key prefix, e.g. {@code "db"} for {@code db} and {@code db.*} keys, null or empty for all keys
+     * @return change events of keys under the prefix, delivered on the common fork join pool
+     * @see #changes(String, Executor)
+     */
+    public Flow.Publisher<ConfigChangeEvent> changes(final String prefix) {
+        return changes(prefix, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Publishes change events of keys under a prefix, caused by {@link #load()}, rollbacks and overrides.
+     * <p>
+     * A subscriber without demand does not queue events, the changes are coalesced into the next event,
+     * read the current values from the config. The publisher never completes.
+     * </p>
+     *
+     * @param prefix    key prefix, e.g. {@code "db"} for {@code db} and {@code db.*} keys, null or empty for all keys
+     * @param executor  delivers the events
+     * @return change events publisher
+     */
+    public Flow.Publisher<ConfigChangeEvent> changes(final String prefix, final Executor executor) {
+        return new ConfigChangePublisher(this, prefix, executor);
+    }
+
+    private void fireConfigChanged(final Set<String> changedKeys) {
+        if (changedKeys.isEmpty()) {
+            return;
         }
-        values.put(key, value);
+        final Set<String> keys = Collections.unmodifiableSet(changedKeys);
+        listeners.forEach(listener -> {
+            try {
+                listener.configChanged(this, keys);
+            }
+            catch (RuntimeException e) {
+                LOG.warn("Config change listener failed: " + listener, e);
+            }
+        });
     }
 
+    /*====================================================================================================
+     * GETTERS
+     *====================================================================================================*/
+
     /**
      * @return {@code true} if there is no config entry
      */
@@ -521,14 +2207,15 @@ public class Config implements EnvironmentAware, ResourceLoaderAware, Initializi
      * @return {@code true} if there is a config entry of the {@code key}
      */
     public boolean containsKey(final String key) {
+        loadNamespaces(key);
         return values.containsKey(key);
     }
 
     /**
-     * @return all config keys
+     * @return all config keys, sorted
      */
     public Set<String> keySet() {
-        return ImmutableSet.copyOf(values.keySet());
+        return sortedKeys(values);
     }
 
     /**
@@ -543,10 +2230,40 @@ public class Config implements EnvironmentAware, ResourceLoaderAware, Initializi
      */
     @SuppressWarnings("unchecked")
     public <T> T get(final String key) {
-        if (!containsKey(key)) {
+        loadNamespaces(key);
+        final Object value = values.get(key, MISSING);
+        if (value == MISSING) {
+            countMiss(key);
+            throw new NoSuchKeyException(key);
+        }
+        countHit();
+        return (T)evaluate(key, value);
+    }
+
+    /**
+     * Gets a secret without making a String of it.
+     *
+     * @param key   config key of an {@link Encrypted}, or a plain String value
+     * @return a new char array, wipe it after use
+     * @throws NoSuchKeyException if the {@code key} does not exists
+     * @throws ConfigException if the value is neither
+     */
+    public char[] getSecretChars(final String key) {
+        loadNamespaces(key);
+        final Object value = values.get(key, MISSING);
+        if (value == MISSING) {
+            countMiss(key);
             throw new NoSuchKeyException(key);
         }
-        return (T)values.get(key);
+        countHit();
+        if (value instanceof Encrypted) {
+            return decrypt(key, (Encrypted)value);
+        }
+        if (value instanceof String) {
+            return ((String)value).toCharArray();
+        }
+        throw new ConfigException("Not a secret, config key '" + key + "' is a "
+                                + (value == null ? "null" : value.getClass().getSimpleName()));
     }
 
     /**
@@ -560,7 +2277,93 @@ public class Config implements EnvironmentAware, ResourceLoaderAware, Initializi
      */
     @SuppressWarnings("unchecked")
     public <T> T get(final String key, final T defaultValue) {
-        return containsKey(key) ? (T)values.get(key) : defaultValue;
+        loadNamespaces(key);
+        final Object value = values.get(key, MISSING);
+        if (value == MISSING) {
+            countMiss(key);
+            return defaultValue;
+        }
+        countHit();
+        return (T)evaluate(key, value);
+    }
+
+    /*====================================================================================================
+     * BINDING
+     *====================================================================================================*/
+
+    /**
+     * Binds the keys under {@code prefix} to the bean properties of a new instance.
+     * <p>
+     * e.g. key {@code db.pool.size} to property {@code pool.size} of a bean bound at {@code "db"}.
+     * Values are converted to the property types, properties without keys are left as they are.
+     * All properties are bound from the same version, and are not counted as lookups.
+     * How to bind each class is worked out once and cached.
+     * </p>
+     *
+     * @param prefix    key prefix
+     * @param type      bean class, with a no-arg constructor
+     * @param <T>       bean type
+     * @return the bound instance
+     * @throws ConfigException if a value cannot be converted
+     */
+    public <T> T bind(final String prefix, final Class<T> type) {
+        final T bean = type.cast(BindingPlan.of(type).newInstance());
+        return bind(prefix, bean);
+    }
+
+    /**
+     * Binds the keys under {@code prefix} to the bean properties of an existing instance.
+     *
+     * @param prefix    key prefix
+     * @param bean      bean to bind
+     * @param <T>       bean type
+     * @return {@code bean}
+     * @see #bind(String, Class)
+     */
+    public <T> T bind(final String prefix, final T bean) {
+        BindingPlan.of(bean.getClass()).bind(bean, prefix, bindingLookup(prefix), MISSING);
+        return bean;
+    }
+
+    /**
+     * Binds only the changed keys under {@code prefix}, e.g. from a {@link ConfigChangeListener}.
+     * Properties of removed keys are left as they are.
+     *
+     * @param prefix        key prefix
+     * @param bean          bean bound before
+     * @param changedKeys   changed keys
+     * @param <T>           bean type
+     * @return {@code bean}
+     * @see #bind(String, Class)
+     */
+    public <T> T rebind(final String prefix, final T bean, final Set<String> changedKeys) {
+        final String keyPrefix = prefix + '.';
+        final Set<String> relativeKeys = changedKeys.stream()
+                                                    .filter(key -> key.startsWith(keyPrefix))
+                                                    .map(key -> key.substring(keyPrefix.length()))
+                                                    .collect(Collectors.toSet());
+        if (!relativeKeys.isEmpty()) {
+            BindingPlan.of(bean.getClass()).rebind(bean, prefix, relativeKeys, bindingLookup(prefix), MISSING);
+        }
+        return bean;
+    }
+
+    /**
+     * Binds from one version, probing for property keys is not counted as lookups.
+     *
+     * @return value of a key under {@code prefix}, or {@link #MISSING}
+     */
+    private Function<String, Object> bindingLookup(final String prefix) {
+        for (final Namespace namespace : pendingNamespaces) {
+            if (namespace.covers(prefix) || namespace.prefix.startsWith(prefix + '.')) {
+                loadNamespace(namespace);
+            }
+        }
+        final PersistentMap bound = values;
+        return key -> {
+            final Object value = bound.get(key, MISSING);
+            return value == MISSING ? MISSING : evaluate(key, value);
+        };
     }
 
 }
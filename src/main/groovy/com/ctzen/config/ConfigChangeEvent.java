@@ -0,0 +1,40 @@
+package com.ctzen.config;
+
+import java.util.Set;
+
+/**
+ * Published by {@link Config#changes(String)}.
+ *
+ * @author cchang
+ */
+public class ConfigChangeEvent {
+
+    ConfigChangeEvent(final Config config, final Set<String> changedKeys) {
+        this.config = config;
+        this.changedKeys = changedKeys;
+    }
+
+    private final Config config;
+
+    private final Set<String> changedKeys;
+
+    /**
+     * @return the changed config, read the current values from it
+     */
+    public Config getConfig() {
+        return config;
+    }
+
+    /**
+     * @return keys added, removed, or with a changed value since the previous event (sorted, never empty)
+     */
+    public Set<String> getChangedKeys() {
+        return changedKeys;
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigChangeEvent" + changedKeys;
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.ctzen.config;
+
+import java.util.Set;
+
+/**
+ * Notified when {@link Config} entries change.
+ *
+ * @author cchang
+ */
+@FunctionalInterface
+public interface ConfigChangeListener {
+
+    /**
+     * @param config        the changed config
+     * @param changedKeys   keys added, removed, or with a changed value (sorted, never empty)
+     */
+    void configChanged(Config config, Set<String> changedKeys);
+
+}
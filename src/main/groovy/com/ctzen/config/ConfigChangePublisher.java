@@ -0,0 +1,164 @@
+package com.ctzen.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Publishes {@link ConfigChangeEvent}s of keys under a prefix.
+ * <p>
+ * Each subscription keeps at most one pending event, changes arriving while the subscriber has no demand
+ * are coalesced into it. Events are delivered on the executor, never on the thread changing the config.
+ * The publisher never completes.
+ * </p>
+ *
+ * @author cchang
+ */
+class ConfigChangePublisher implements Flow.Publisher<ConfigChangeEvent> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConfigChangePublisher.class);
+
+    ConfigChangePublisher(final Config config, final String prefix, final Executor executor) {
+        this.config = config;
+        this.prefix = prefix == null ? "" : prefix;
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    private final Config config;
+
+    private final String prefix;
+
+    private final Executor executor;
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super ConfigChangeEvent> subscriber) {
+        final ChangeSubscription subscription = new ChangeSubscription(Objects.requireNonNull(subscriber));
+        config.addChangeListener(subscription);     // first, so a cancel in onSubscribe removes it
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * @return {@code true} if the key is the prefix, or under it
+     */
+    boolean matches(final String key) {
+        return prefix.isEmpty()
+            || (key.startsWith(prefix)
+                && (key.length() == prefix.length() || prefix.endsWith(".") || key.charAt(prefix.length()) == '.'));
+    }
+
+    private class ChangeSubscription implements Flow.Subscription, ConfigChangeListener {
+
+        ChangeSubscription(final Flow.Subscriber<? super ConfigChangeEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        private final Flow.Subscriber<? super ConfigChangeEvent> subscriber;
+
+        private Set<String> pending;    // coalesced changed keys, null if none
+
+        private long demand;
+
+        private boolean draining;
+
+        private boolean cancelled;
+
+        private Throwable error;
+
+        @Override
+        public void configChanged(final Config config, final Set<String> changedKeys) {
+            synchronized (this) {
+                for (final String key : changedKeys) {
+                    if (matches(key)) {
+                        if (pending == null) {
+                            pending = new TreeSet<>();
+                        }
+                        pending.add(key);
+                    }
+                }
+            }
+            drainLater();
+        }
+
+        @Override
+        public void request(final long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    error = new IllegalArgumentException("Non-positive request: " + n);
+                }
+                else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            drainLater();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                pending = null;
+            }
+            config.removeChangeListener(this);
+        }
+
+        private void drainLater() {
+            synchronized (this) {
+                if (draining || cancelled || (error == null && (pending == null || demand == 0))) {
+                    return;
+                }
+                draining = true;
+            }
+            try {
+                executor.execute(this::drain);
+            }
+            catch (final RejectedExecutionException e) {
+                synchronized (this) {
+                    draining = false;
+                }
+                cancel();
+                subscriber.onError(e);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                final Set<String> keys;
+                final Throwable err;
+                synchronized (this) {
+                    err = error;
+                    if (cancelled || (err == null && (pending == null || demand == 0))) {
+                        draining = false;
+                        return;
+                    }
+                    keys = err == null ? pending : null;
+                    pending = null;
+                    if (err == null) {
+                        --demand;
+                    }
+                }
+                if (err != null) {
+                    cancel();
+                    subscriber.onError(err);
+                    return;
+                }
+                try {
+                    subscriber.onNext(new ConfigChangeEvent(config, Collections.unmodifiableSet(keys)));
+                }
+                catch (RuntimeException e) {
+                    LOG.warn("Config change subscriber failed, cancelled: " + subscriber, e);
+                    cancel();
+                    return;
+                }
+            }
+        }
+
+    }
+
+}
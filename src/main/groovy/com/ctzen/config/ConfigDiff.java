@@ -0,0 +1,85 @@
+package com.ctzen.config;
+
+import com.google.common.collect.ImmutableSortedSet;
+
+import java.util.Set;
+
+/**
+ * Keys changed between two {@link ConfigSnapshot}s.
+ *
+ * @author cchang
+ */
+public class ConfigDiff {
+
+    ConfigDiff(final ConfigSnapshot from, final ConfigSnapshot to) {
+        this.from = from;
+        this.to = to;
+        final ImmutableSortedSet.Builder<String> added = ImmutableSortedSet.naturalOrder();
+        final ImmutableSortedSet.Builder<String> removed = ImmutableSortedSet.naturalOrder();
+        final ImmutableSortedSet.Builder<String> changed = ImmutableSortedSet.naturalOrder();
+        from.entries.diff(to.entries, (key, fromValue, toValue) -> {
+            if (fromValue == PersistentMap.ABSENT) {
+                added.add(key);
+            }
+            else if (toValue == PersistentMap.ABSENT) {
+                removed.add(key);
+            }
+            else {
+                changed.add(key);
+            }
+        });
+        this.added = added.build();
+        this.removed = removed.build();
+        this.changed = changed.build();
+    }
+
+    private final ConfigSnapshot from;
+
+    private final ConfigSnapshot to;
+
+    private final Set<String> added;
+
+    private final Set<String> removed;
+
+    private final Set<String> changed;
+
+    public ConfigSnapshot getFrom() {
+        return from;
+    }
+
+    public ConfigSnapshot getTo() {
+        return to;
+    }
+
+    /**
+     * @return sorted keys only in {@link #getTo()}
+     */
+    public Set<String> getAdded() {
+        return added;
+    }
+
+    /**
+     * @return sorted keys only in {@link #getFrom()}
+     */
+    public Set<String> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return sorted keys in both, with different values
+     */
+    public Set<String> getChanged() {
+        return changed;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "v" + from.getVersion() + " -> v" + to.getVersion()
+             + " added=" + added + " removed=" + removed + " changed=" + changed;
+    }
+
+}
@@ -0,0 +1,220 @@
+package com.ctzen.config;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes config entries one at a time.
+ *
+ * @author cchang
+ */
+class ConfigExporter {
+
+    static final String REDACTED = "<redacted>";
+
+    ConfigExporter(final Writer writer, final ExportFormat format, final Set<String> redactKeys) {
+        this.writer = writer;
+        this.format = format;
+        this.redactKeys = redactKeys;
+    }
+
+    private final Writer writer;
+
+    private final ExportFormat format;
+
+    private final Set<String> redactKeys;
+
+    private boolean first = true;
+
+    void begin() throws IOException {
+        if (format == ExportFormat.JSON) {
+            writer.write('{');
+        }
+    }
+
+    void entry(final String key, final Object value) throws IOException {
+        final Object exported = redactKeys.contains(key) ? REDACTED : value;
+        switch (format) {
+            case PROPERTIES:
+                writeProperty(key, true);
+                writer.write('=');
+                writeProperty(exported == null ? "" : String.valueOf(exported), false);
+                writer.write('\n');
+                break;
+            case JSON:
+                if (!first) {
+                    writer.write(',');
+                }
+                writer.write("\n  ");
+                writeJsonString(key);
+                writer.write(':');
+                writeJson(exported);
+                break;
+            case NDJSON:
+                writer.write("{\"key\":");
+                writeJsonString(key);
+                writer.write(",\"value\":");
+                writeJson(exported);
+                writer.write("}\n");
+                break;
+            default:
+                throw new IllegalStateException("Unknown format: " + format);
+        }
+        first = false;
+    }
+
+    void end() throws IOException {
+        if (format == ExportFormat.JSON) {
+            writer.write(first ? "}\n" : "\n}\n");
+        }
+        writer.flush();
+    }
+
+    private void writeProperty(final String s, final boolean isKey) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            switch (c) {
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\f':
+                    writer.write("\\f");
+                    break;
+                case ' ':
+                    if (isKey || i == 0) {
+                        writer.write('\\');
+                    }
+                    writer.write(c);
+                    break;
+                case '=':
+                case ':':
+                case '#':
+                case '!':
+                    if (isKey || i == 0) {
+                        writer.write('\\');
+                    }
+                    writer.write(c);
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        writeUnicodeEscape(c);
+                    }
+                    else {
+                        writer.write(c);
+                    }
+            }
+        }
+    }
+
+    private void writeJson(final Object value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+        }
+        else if (value instanceof Boolean) {
+            writer.write(value.toString());
+        }
+        else if (value instanceof Number) {
+            final String s = value.toString();
+            if ((value instanceof Double && !Double.isFinite((Double)value))
+                    || (value instanceof Float && !Float.isFinite((Float)value))) {
+                writeJsonString(s);
+            }
+            else {
+                writer.write(s);
+            }
+        }
+        else if (value instanceof Map) {
+            writer.write('{');
+            boolean firstEntry = true;
+            for (final Map.Entry<?,?> entry : ((Map<?,?>)value).entrySet()) {
+                if (!firstEntry) {
+                    writer.write(',');
+                }
+                writeJsonString(String.valueOf(entry.getKey()));
+                writer.write(':');
+                writeJson(entry.getValue());
+                firstEntry = false;
+            }
+            writer.write('}');
+        }
+        else if (value instanceof Iterable) {
+            writer.write('[');
+            boolean firstElement = true;
+            for (final Object element : (Iterable<?>)value) {
+                if (!firstElement) {
+                    writer.write(',');
+                }
+                writeJson(element);
+                firstElement = false;
+            }
+            writer.write(']');
+        }
+        else if (value.getClass().isArray()) {
+            writer.write('[');
+            for (int i = 0, n = Array.getLength(value); i < n; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeJson(Array.get(value, i));
+            }
+            writer.write(']');
+        }
+        else {
+            writeJsonString(value.toString());
+        }
+    }
+
+    private void writeJsonString(final String s) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        writeUnicodeEscape(c);
+                    }
+                    else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+
+    private void writeUnicodeEscape(final char c) throws IOException {
+        writer.write("\\u");
+        final String hex = Integer.toHexString(c);
+        for (int i = hex.length(); i < 4; i++) {
+            writer.write('0');
+        }
+        writer.write(hex);
+    }
+
+}
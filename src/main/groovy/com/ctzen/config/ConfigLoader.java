@@ -37,4 +37,19 @@ public interface ConfigLoader {
      */
     List<ConfigObject> load(String location, List<String> profiles);
 
+    /**
+     * Identifies what {@link #load(String, List)} would load, for sharing loaded configs between
+     * {@link Config} instances, see {@link Config#setSharedCache(boolean)}.
+     * <p>
+     * Must change whenever the loaded content would change, e.g. a hash of the resources read.
+     * </p>
+     *
+     * @param location  resource location string
+     * @param profiles  config profile names (may be empty but never null)
+     * @return fingerprint, or null if the location cannot be shared (the default)
+     */
+    default String fingerprint(String location, List<String> profiles) {
+        return null;
+    }
+
 }
@@ -0,0 +1,80 @@
+package com.ctzen.config;
+
+/**
+ * Status of a config location as of its last load.
+ *
+ * @author cchang
+ */
+public class ConfigLocationStats {
+
+    /**
+     * Location load status.
+     */
+    public enum Status {
+        /** loaded some config entries */
+        LOADED,
+        /** missing resource, or no config entry */
+        EMPTY,
+        /** loading failed */
+        FAILED
+    }
+
+    ConfigLocationStats(final String location, final String loader, final Status status, final String error,
+                        final int keyCount, final long loadDurationMillis) {
+        this.location = location;
+        this.loader = loader;
+        this.status = status;
+        this.error = error;
+        this.keyCount = keyCount;
+        this.loadDurationMillis = loadDurationMillis;
+    }
+
+    private final String location;
+
+    private final String loader;
+
+    private final Status status;
+
+    private final String error;
+
+    private final int keyCount;
+
+    private final long loadDurationMillis;
+
+    /**
+     * @return the config location
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * @return class name of the {@link ConfigLoader} used
+     */
+    public String getLoader() {
+        return loader;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return error message if {@link Status#FAILED}, otherwise null
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return number of config entries loaded, over all profiles
+     */
+    public int getKeyCount() {
+        return keyCount;
+    }
+
+    public long getLoadDurationMillis() {
+        return loadDurationMillis;
+    }
+
+}
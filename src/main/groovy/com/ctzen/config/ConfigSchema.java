@@ -0,0 +1,121 @@
+package com.ctzen.config;
+
+import com.google.common.primitives.Primitives;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Expected config keys, their types and ranges.
+ * <p>
+ * {@code new ConfigSchema().require("db.url", String.class).require("pool.size", Integer.class, 1, 100)
+ * .optional("feature.*", Boolean.class)}
+ * </p>
+ * <p>
+ * Key patterns may use {@code *} for any part of a key segment, and {@code **} for any number of segments.
+ * An entry is checked against the first matching rule, exact keys before patterns.
+ * {@link Lazy} values are not evaluated, and {@link Encrypted} values are not decrypted, their types are not checked.
+ * </p>
+ *
+ * @author cchang
+ * @see Config#setSchema(ConfigSchema)
+ */
+public class ConfigSchema {
+
+    static class Rule {
+
+        final String pattern;
+
+        final Class<?> type;
+
+        final Number min;
+
+        final Number max;
+
+        final boolean required;
+
+        Rule(final String pattern, final Class<?> type, final Number min, final Number max, final boolean required) {
+            this.pattern = Objects.requireNonNull(pattern);
+            this.type = Primitives.wrap(Objects.requireNonNull(type));
+            this.min = min;
+            this.max = max;
+            this.required = required;
+        }
+
+        boolean isPattern() {
+            return pattern.indexOf('*') >= 0;
+        }
+
+    }
+
+    private final List<Rule> rules = new ArrayList<>();
+
+    private boolean allowUnknownKeys = true;
+
+    /**
+     * @param pattern   key or key pattern, at least one key must match
+     * @param type      expected value type
+     * @return this
+     */
+    public ConfigSchema require(final String pattern, final Class<?> type) {
+        return require(pattern, type, null, null);
+    }
+
+    /**
+     * @param pattern   key or key pattern, at least one key must match
+     * @param type      expected value type, a {@link Number} type
+     * @param min       inclusive, null if unbounded
+     * @param max       inclusive, null if unbounded
+     * @return this
+     */
+    public ConfigSchema require(final String pattern, final Class<?> type, final Number min, final Number max) {
+        rules.add(new Rule(pattern, type, min, max, true));
+        return this;
+    }
+
+    /**
+     * @param pattern   key or key pattern
+     * @param type      expected value type
+     * @return this
+     */
+    public ConfigSchema optional(final String pattern, final Class<?> type) {
+        return optional(pattern, type, null, null);
+    }
+
+    /**
+     * @param pattern   key or key pattern
+     * @param type      expected value type, a {@link Number} type
+     * @param min       inclusive, null if unbounded
+     * @param max       inclusive, null if unbounded
+     * @return this
+     */
+    public ConfigSchema optional(final String pattern, final Class<?> type, final Number min, final Number max) {
+        rules.add(new Rule(pattern, type, min, max, false));
+        return this;
+    }
+
+    public boolean isAllowUnknownKeys() {
+        return allowUnknownKeys;
+    }
+
+    /**
+     * Are keys not matching any rule allowed?
+     * <p>
+     * Default is {@code true}
+     * </p>
+     *
+     * @param allowUnknownKeys  {@code false} to report unknown keys as violations
+     * @return this
+     */
+    public ConfigSchema setAllowUnknownKeys(final boolean allowUnknownKeys) {
+        this.allowUnknownKeys = allowUnknownKeys;
+        return this;
+    }
+
+    List<Rule> getRules() {
+        return Collections.unmodifiableList(rules);
+    }
+
+}
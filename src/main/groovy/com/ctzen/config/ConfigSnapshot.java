@@ -0,0 +1,94 @@
+package com.ctzen.config;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An immutable version of the loaded config entries, without the runtime overrides.
+ * <p>
+ * Versions share unchanged entries, keeping many of them costs little memory.
+ * </p>
+ *
+ * @author cchang
+ */
+public class ConfigSnapshot {
+
+    ConfigSnapshot(final long version, final long loadTime, final List<String> profiles, final PersistentMap entries) {
+        this.version = version;
+        this.loadTime = loadTime;
+        this.profiles = ImmutableList.copyOf(profiles);
+        this.entries = entries;
+    }
+
+    private final long version;
+
+    private final long loadTime;
+
+    private final List<String> profiles;
+
+    final PersistentMap entries;
+
+    /**
+     * @return version number, increasing with each successful load
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return when the load finished, in epoch milliseconds
+     */
+    public long getLoadTime() {
+        return loadTime;
+    }
+
+    /**
+     * @return profiles used by the load
+     */
+    public List<String> getProfiles() {
+        return profiles;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean containsKey(final String key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * @param key   config key
+     * @return the value as loaded, {@link Lazy} values are not evaluated, null if absent;
+     *         values of a {@link Config#setSubscribeDirectory(java.nio.file.Path) subscribed} snapshot as published
+     */
+    public Object get(final String key) {
+        return SnapshotFiles.decoded(entries.get(key, null));
+    }
+
+    /**
+     * @return sorted keys
+     */
+    public Set<String> keySet() {
+        return ImmutableSortedSet.copyOf(entries.keys());
+    }
+
+    /**
+     * Only walks the parts that differ, cheap for versions that share most entries.
+     *
+     * @param to    a later, or earlier, snapshot
+     * @return changes from this snapshot to {@code to}
+     */
+    public ConfigDiff diff(final ConfigSnapshot to) {
+        return new ConfigDiff(this, to);
+    }
+
+    @Override
+    public String toString() {
+        return "v" + version + " " + profiles + " " + entries.size() + " entries";
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.ctzen.config;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * Immutable {@link Config} load statistics, computed after each load.
+ *
+ * @author cchang
+ */
+public class ConfigStats {
+
+    static final ConfigStats NONE = new ConfigStats(0, 0, 0, 0, 0, ImmutableList.of());
+
+    ConfigStats(final int keyCount, final long lastLoadTime, final long lastLoadDurationMillis,
+                final long loadCount, final long loadFailureCount, final List<ConfigLocationStats> locations) {
+        this.keyCount = keyCount;
+        this.lastLoadTime = lastLoadTime;
+        this.lastLoadDurationMillis = lastLoadDurationMillis;
+        this.loadCount = loadCount;
+        this.loadFailureCount = loadFailureCount;
+        this.locations = ImmutableList.copyOf(locations);
+    }
+
+    private final int keyCount;
+
+    private final long lastLoadTime;
+
+    private final long lastLoadDurationMillis;
+
+    private final long loadCount;
+
+    private final long loadFailureCount;
+
+    private final List<ConfigLocationStats> locations;
+
+    /**
+     * @return number of config entries after the last load
+     */
+    public int getKeyCount() {
+        return keyCount;
+    }
+
+    /**
+     * @return when the last load started, in epoch milliseconds, 0 if never loaded
+     */
+    public long getLastLoadTime() {
+        return lastLoadTime;
+    }
+
+    public long getLastLoadDurationMillis() {
+        return lastLoadDurationMillis;
+    }
+
+    /**
+     * @return number of loads, including failed ones
+     */
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    /**
+     * @return number of failed loads
+     */
+    public long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+
+    /**
+     * @return status of each location as of its last load, in load order
+     */
+    public List<ConfigLocationStats> getLocations() {
+        return locations;
+    }
+
+}
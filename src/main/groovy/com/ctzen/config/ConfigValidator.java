@@ -0,0 +1,210 @@
+package com.ctzen.config;
+
+import com.ctzen.config.exception.ConfigValidationException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link ConfigSchema} compiled for checking all entries in one pass.
+ * <p>
+ * Exact keys are looked up by hash, all patterns are combined into one regular expression,
+ * the matching group tells the rule.
+ * </p>
+ *
+ * @author cchang
+ */
+class ConfigValidator {
+
+    ConfigValidator(final ConfigSchema schema) {
+        allowUnknownKeys = schema.isAllowUnknownKeys();
+        rules = schema.getRules().toArray(new ConfigSchema.Rule[0]);
+        final List<Integer> patternRules = new ArrayList<>();
+        final StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < rules.length; i++) {
+            final ConfigSchema.Rule rule = rules[i];
+            if (rule.isPattern()) {
+                regex.append(regex.length() == 0 ? "(" : "|(").append(globToRegex(rule.pattern)).append(')');
+                patternRules.add(i);
+            }
+            else {
+                exactRules.putIfAbsent(rule.pattern, i);
+            }
+        }
+        pattern = regex.length() == 0 ? null : Pattern.compile(regex.toString());
+        this.patternRules = patternRules.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private final boolean allowUnknownKeys;
+
+    private final ConfigSchema.Rule[] rules;
+
+    /**
+     * Exact key to rule index.
+     */
+    private final Map<String, Integer> exactRules = new HashMap<>();
+
+    private final Pattern pattern;
+
+    /**
+     * Pattern group (less 1) to rule index.
+     */
+    private final int[] patternRules;
+
+    /**
+     * @param entries       entries to check
+     * @param redactKeys    keys whose values must not appear in the messages
+     * @param notLoaded     tests whether a key is in a part not loaded yet, whose required keys are not checked
+     * @throws ConfigValidationException reporting all violations
+     */
+    void validate(final PersistentMap entries, final Set<String> redactKeys, final Predicate<String> notLoaded) {
+        final List<String> violations = new ArrayList<>();
+        final boolean[] matched = new boolean[rules.length];
+        final Matcher matcher = pattern == null ? null : pattern.matcher("");
+        entries.forEach((key, value) -> {
+            final int ruleIndex = findRule(key, matcher);
+            if (ruleIndex < 0) {
+                if (!allowUnknownKeys) {
+                    violations.add(key + ": unknown key");
+                }
+                return;
+            }
+            matched[ruleIndex] = true;
+            final String violation = check(rules[ruleIndex], value, redactKeys.contains(key));
+            if (violation != null) {
+                violations.add(key + ": " + violation);
+            }
+        });
+        for (int i = 0; i < rules.length; i++) {
+            if (rules[i].required && !matched[i] && !isShadowed(i) && !isNotLoaded(rules[i], notLoaded)) {
+                violations.add(rules[i].pattern + (rules[i].isPattern() ? ": no key matches required pattern"
+                                                                        : ": required key is missing"));
+            }
+        }
+        if (!violations.isEmpty()) {
+            Collections.sort(violations);
+            throw new ConfigValidationException(violations);
+        }
+    }
+
+    /**
+     * Checks a single entry, for overrides.
+     *
+     * @throws ConfigValidationException if invalid
+     */
+    void validate(final String key, final Object value, final boolean redacted) {
+        final int ruleIndex = findRule(key, pattern == null ? null : pattern.matcher(""));
+        final String violation;
+        if (ruleIndex < 0) {
+            violation = allowUnknownKeys ? null : "unknown key";
+        }
+        else {
+            violation = check(rules[ruleIndex], value, redacted);
+        }
+        if (violation != null) {
+            throw new ConfigValidationException(Collections.singletonList(key + ": " + violation));
+        }
+    }
+
+    private int findRule(final String key, final Matcher matcher) {
+        final Integer exact = exactRules.get(key);
+        if (exact != null) {
+            return exact;
+        }
+        if (matcher != null && matcher.reset(key).matches()) {
+            for (int group = 1; group <= patternRules.length; group++) {
+                if (matcher.start(group) >= 0) {
+                    return patternRules[group - 1];
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return {@code true} if every key {@code rule} matches is not loaded yet
+     */
+    private static boolean isNotLoaded(final ConfigSchema.Rule rule, final Predicate<String> notLoaded) {
+        if (!rule.isPattern()) {
+            return notLoaded.test(rule.pattern);
+        }
+        final int wildcard = rule.pattern.indexOf('*');
+        final int dot = rule.pattern.lastIndexOf('.', wildcard);
+        return dot > 0 && notLoaded.test(rule.pattern.substring(0, dot));
+    }
+
+    /**
+     * A duplicate exact rule never matches, the first one is checked.
+     */
+    private boolean isShadowed(final int ruleIndex) {
+        final ConfigSchema.Rule rule = rules[ruleIndex];
+        return !rule.isPattern() && exactRules.get(rule.pattern) != ruleIndex;
+    }
+
+    /**
+     * @return violation message, null if valid
+     */
+    private static String check(final ConfigSchema.Rule rule, final Object loadedValue, final boolean redacted) {
+        final Object value = SnapshotFiles.decoded(loadedValue);
+        if ((value instanceof Lazy && rule.type != Lazy.class)
+                || (value instanceof Encrypted && rule.type != Encrypted.class)) {
+            return null;
+        }
+        if (!rule.type.isInstance(value)) {
+            return "expected " + rule.type.getSimpleName() + ", was "
+                 + (value == null ? "null" : value.getClass().getSimpleName() + " " + display(value, redacted));
+        }
+        if (value instanceof Number) {
+            final double d = ((Number)value).doubleValue();
+            if (rule.min != null && d < rule.min.doubleValue()) {
+                return display(value, redacted) + " is below min " + rule.min;
+            }
+            if (rule.max != null && d > rule.max.doubleValue()) {
+                return display(value, redacted) + " is above max " + rule.max;
+            }
+        }
+        return null;
+    }
+
+    private static String display(final Object value, final boolean redacted) {
+        if (redacted) {
+            return ConfigExporter.REDACTED;
+        }
+        return value instanceof CharSequence ? "\"" + value + "\"" : String.valueOf(value);
+    }
+
+    /**
+     * {@code *} matches within a key segment, {@code **} across segments.
+     */
+    static String globToRegex(final String glob) {
+        final StringBuilder regex = new StringBuilder();
+        int literalStart = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            if (glob.charAt(i) == '*') {
+                if (i > literalStart) {
+                    regex.append(Pattern.quote(glob.substring(literalStart, i)));
+                }
+                if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                    regex.append(".*");
+                    i++;
+                }
+                else {
+                    regex.append("[^.]*");
+                }
+                literalStart = i + 1;
+            }
+        }
+        if (literalStart < glob.length()) {
+            regex.append(Pattern.quote(glob.substring(literalStart)));
+        }
+        return regex.toString();
+    }
+
+}
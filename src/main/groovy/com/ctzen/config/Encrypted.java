@@ -0,0 +1,216 @@
+package com.ctzen.config;
+
+import com.ctzen.config.exception.ConfigException;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Encrypted config value, always redacted.
+ * <p>
+ * {@code password = new Encrypted('...')} in config scripts, {@code password=ENC(...)} in properties files
+ * if the config has a {@link Config#setSecretKeySource(SecretKeySource) key source}.
+ * The value is the Base64 of a 12 byte IV followed by the AES/GCM cipher text, see {@link #encrypt(String, SecretKey)}.
+ * </p>
+ * <p>
+ * Decrypted on first access with the {@link Config#setSecretKeySource(SecretKeySource) config's key},
+ * the plain text is kept in an off-heap buffer, wiped by {@link #wipe()} or when this value is garbage collected.
+ * {@link Config#get(String)} returns the plain text as a String on the heap,
+ * {@link Config#getSecretChars(String)} returns it in a char array that the caller can wipe.
+ * </p>
+ * <p>
+ * Encrypted values cannot be referenced by {@code ${...}}, a reference fails the load.
+ * </p>
+ *
+ * @author cchang
+ */
+public final class Encrypted {
+
+    /**
+     * Prefix of encrypted String values.
+     */
+    public static final String PREFIX = "ENC(";
+
+    public static final String SUFFIX = ")";
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+    private static final int IV_LENGTH = 12;
+
+    private static final int TAG_BITS = 128;
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /**
+     * @param value     Base64 of the IV and the cipher text
+     */
+    public Encrypted(final String value) {
+        try {
+            this.value = Base64.getDecoder().decode(value.trim());
+        }
+        catch (final IllegalArgumentException e) {
+            throw new ConfigException("Encrypted value is not Base64", e);
+        }
+        if (this.value.length <= IV_LENGTH) {
+            throw new ConfigException("Encrypted value too short");
+        }
+    }
+
+    private final byte[] value;
+
+    private ByteBuffer plain;   // off-heap UTF-8, null until decrypted or once wiped
+
+    private SecretKeySource decryptedBy;    // source of the key that decrypted plain
+
+    private Cleaner.Cleanable cleanable;
+
+    /**
+     * @param value     config value
+     * @return {@code true} for {@code ENC(...)}
+     */
+    static boolean isEncrypted(final String value) {
+        return value.startsWith(PREFIX) && value.endsWith(SUFFIX);
+    }
+
+    /**
+     * @param value     {@code ENC(...)}
+     */
+    static Encrypted of(final String value) {
+        return new Encrypted(value.substring(PREFIX.length(), value.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Encrypts a value for a config file.
+     *
+     * @param plainText     value to encrypt
+     * @param key           AES key
+     * @return Base64 of a random IV and the cipher text, for {@code new Encrypted(...)} or {@code ENC(...)}
+     */
+    public static String encrypt(final String plainText, final SecretKey key) {
+        final byte[] iv = new byte[IV_LENGTH];
+        new SecureRandom().nextBytes(iv);
+        final byte[] plainBytes = plainText.getBytes(StandardCharsets.UTF_8);
+        try {
+            final Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            final byte[] cipherText = cipher.doFinal(plainBytes);
+            final byte[] out = Arrays.copyOf(iv, IV_LENGTH + cipherText.length);
+            System.arraycopy(cipherText, 0, out, IV_LENGTH, cipherText.length);
+            return Base64.getEncoder().encodeToString(out);
+        }
+        catch (final GeneralSecurityException e) {
+            throw new ConfigException("Error encrypting", e);
+        }
+        finally {
+            Arrays.fill(plainBytes, (byte)0);
+        }
+    }
+
+    /**
+     * @return Base64 of the IV and the cipher text, as constructed
+     */
+    String toBase64() {
+        return Base64.getEncoder().encodeToString(value);
+    }
+
+    /**
+     * @return {@code true} if the plain text is cached
+     */
+    public synchronized boolean isDecrypted() {
+        return plain != null;
+    }
+
+    /**
+     * @param keySource     decrypts on first access, or if the plain text was decrypted with another key source
+     * @return the plain text, in a new char array
+     */
+    synchronized char[] decrypt(final SecretKeySource keySource) {
+        if (decryptedBy != keySource) {
+            wipe();
+        }
+        if (plain == null) {
+            final byte[] plainBytes;
+            try {
+                final Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+                cipher.init(Cipher.DECRYPT_MODE, keySource.getSecretKey(),
+                            new GCMParameterSpec(TAG_BITS, value, 0, IV_LENGTH));
+                plainBytes = cipher.doFinal(value, IV_LENGTH, value.length - IV_LENGTH);
+            }
+            catch (final GeneralSecurityException e) {
+                throw new ConfigException("Error decrypting", e);
+            }
+            plain = ByteBuffer.allocateDirect(plainBytes.length);
+            plain.put(plainBytes);
+            Arrays.fill(plainBytes, (byte)0);
+            cleanable = CLEANER.register(this, new Wiper(plain));
+            decryptedBy = keySource;
+        }
+        final CharBuffer chars = StandardCharsets.UTF_8.decode(plain.duplicate().flip());
+        final char[] result = new char[chars.remaining()];
+        chars.get(result);
+        if (chars.hasArray()) {
+            Arrays.fill(chars.array(), '\0');
+        }
+        return result;
+    }
+
+    /**
+     * Zeroes and drops the plain text, the next access decrypts again.
+     */
+    public synchronized void wipe() {
+        if (cleanable != null) {
+            cleanable.clean();
+            cleanable = null;
+            plain = null;
+            decryptedBy = null;
+        }
+    }
+
+    /**
+     * Does not reference the {@link Encrypted}, to let it be collected.
+     */
+    private static final class Wiper implements Runnable {
+
+        Wiper(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private final ByteBuffer buffer;
+
+        @Override
+        public void run() {
+            for (int i = 0; i < buffer.capacity(); i++) {
+                buffer.put(i, (byte)0);
+            }
+        }
+
+    }
+
+    /**
+     * Equal on the IV and the cipher text, a reload keeps an unchanged value and its decrypted plain text.
+     */
+    @Override
+    public boolean equals(final Object o) {
+        return o instanceof Encrypted && Arrays.equals(value, ((Encrypted)o).value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        return "<encrypted>";
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.ctzen.config;
+
+import com.ctzen.config.exception.ConfigException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Maps environment variables and system properties onto loaded config keys by relaxed names,
+ * e.g. {@code DB_POOL_SIZE} or {@code db.pool-size} onto {@code db.pool.size}.
+ * Only matched with a prefix, e.g. environment variable {@code CONFIG_DB_POOL_SIZE} or
+ * system property {@code config.db.pool.size}.
+ * <p>
+ * The relaxed name index is built from the loaded keys, once per load.
+ * </p>
+ *
+ * @author cchang
+ */
+final class EnvironmentOverlay {
+
+    private EnvironmentOverlay() {
+    }
+
+    /**
+     * @return upper case, with every non-alphanumeric character replaced by {@code _}
+     */
+    static String relaxedName(final String name) {
+        final char[] chars = new char[name.length()];
+        for (int i = 0; i < chars.length; i++) {
+            final char c = name.charAt(i);
+            chars[i] = (c >= 'a' && c <= 'z') ? (char)(c - 'a' + 'A')
+                     : ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) ? c
+                     : '_';
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Overlays the entries in the builder.
+     *
+     * @param builder           loaded entries
+     * @param environment       environment variables, null to skip
+     * @param environmentPrefix only environment variables starting with it are matched, without it
+     * @param systemProperties  system properties, null to skip, take precedence over environment variables
+     * @param systemPropertyPrefix  only system properties starting with it are matched, without it
+     * @return overlaid values by config key, converted to the types of the loaded values
+     * @throws ConfigException if a value cannot be converted
+     */
+    static Map<String, Object> overlay(final PersistentMap.Builder builder, final Map<String, String> environment,
+                                       final String environmentPrefix, final Properties systemProperties,
+                                       final String systemPropertyPrefix) {
+        final Map<String, String> index = new HashMap<>(builder.size() * 2);
+        builder.forEach((key, value) -> index.merge(relaxedName(key), key, (a, b) -> "")); // "" if ambiguous
+        final Map<String, String> raw = new HashMap<>();
+        final Map<String, String> sources = new HashMap<>();
+        if (environment != null) {
+            environment.forEach((name, value) -> {
+                if (name.startsWith(environmentPrefix)) {
+                    match(index, name.substring(environmentPrefix.length()), value, "environment variable " + name,
+                          raw, sources);
+                }
+            });
+        }
+        if (systemProperties != null) {
+            systemProperties.stringPropertyNames().forEach(name -> {
+                if (name.startsWith(systemPropertyPrefix)) {
+                    match(index, name.substring(systemPropertyPrefix.length()), systemProperties.getProperty(name),
+                          "system property " + name, raw, sources);
+                }
+            });
+        }
+        final Map<String, Object> overlaid = new HashMap<>(raw.size() * 2);
+        raw.forEach((key, value) -> overlaid.put(key, convert(key, value, builder.get(key, null), sources.get(key))));
+        return overlaid;
+    }
+
+    private static void match(final Map<String, String> index, final String name, final String value,
+                              final String source, final Map<String, String> raw, final Map<String, String> sources) {
+        final String key = index.get(relaxedName(name));
+        if (key != null && !key.isEmpty()) {
+            raw.put(key, value);
+            sources.put(key, source);
+        }
+    }
+
+    /**
+     * @return {@code value} as the type of the {@code loaded} value
+     * @throws ConfigException if it cannot be, rather than changing the type
+     */
+    private static Object convert(final String key, final String value, final Object loaded, final String source) {
+        if (loaded == null || loaded instanceof String || loaded instanceof Encrypted) {
+            return value;
+        }
+        final String s = value.trim();
+        try {
+            if (loaded instanceof Integer) {
+                return Integer.valueOf(s);
+            }
+            if (loaded instanceof Long) {
+                return Long.valueOf(s);
+            }
+            if (loaded instanceof Double) {
+                return Double.valueOf(s);
+            }
+            if (loaded instanceof Float) {
+                return Float.valueOf(s);
+            }
+            if (loaded instanceof Short) {
+                return Short.valueOf(s);
+            }
+            if (loaded instanceof Byte) {
+                return Byte.valueOf(s);
+            }
+            if (loaded instanceof BigDecimal) {
+                return new BigDecimal(s);
+            }
+            if (loaded instanceof BigInteger) {
+                return new BigInteger(s);
+            }
+            if (loaded instanceof Enum) {
+                return enumValue(((Enum<?>)loaded).getDeclaringClass(), s);
+            }
+        }
+        catch (final IllegalArgumentException e) {
+            throw cannotConvert(key, loaded, source, e);
+        }
+        if (loaded instanceof Boolean && ("true".equalsIgnoreCase(s) || "false".equalsIgnoreCase(s))) {
+            return Boolean.valueOf(s);
+        }
+        if (loaded instanceof Character && value.length() == 1) {
+            return value.charAt(0);
+        }
+        throw cannotConvert(key, loaded, source, null);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object enumValue(final Class<?> type, final String name) {
+        return Enum.valueOf((Class)type, name);
+    }
+
+    private static ConfigException cannotConvert(final String key, final Object loaded, final String source,
+                                                 final Exception cause) {
+        final Class<?> type = loaded instanceof Enum ? ((Enum<?>)loaded).getDeclaringClass() : loaded.getClass();
+        return new ConfigException("Cannot convert " + source + " to " + type.getSimpleName()
+                                 + " for config key '" + key + "'", cause);
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.ctzen.config;
+
+/**
+ * Formats of {@link Config#export(java.io.Writer, ExportFormat)}.
+ *
+ * @author cchang
+ */
+public enum ExportFormat {
+
+    /**
+     * {@code key=value} lines, escaped as {@link java.util.Properties#load(java.io.Reader)} expects,
+     * non-ASCII characters as {@code \\uXXXX}.
+     */
+    PROPERTIES,
+
+    /**
+     * One JSON object, {@code {"key":value,...}}.
+     */
+    JSON,
+
+    /**
+     * One JSON object per line, {@code {"key":"...","value":...}}.
+     */
+    NDJSON
+
+}
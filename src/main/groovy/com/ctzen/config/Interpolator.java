@@ -0,0 +1,120 @@
+package com.ctzen.config;
+
+import com.ctzen.config.exception.ConfigException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves {@code ${key}} references between String config values, once, while loading.
+ * <p>
+ * Referencing values are resolved depth first along their references, each is resolved only once,
+ * and circular references are reported.
+ * </p>
+ *
+ * @author cchang
+ */
+final class Interpolator {
+
+    static final String PLACEHOLDER_PREFIX = "${";
+
+    static final String PLACEHOLDER_SUFFIX = "}";
+
+    static final String VALUE_SEPARATOR = ":";
+
+    private static final Object MISSING = new Object();
+
+    private final PersistentMap.Builder builder;
+
+    /**
+     * Unresolved values with references, by key.
+     */
+    private final Map<String, String> unresolved = new HashMap<>();
+
+    /**
+     * Keys being resolved, in reference order.
+     */
+    private final Set<String> resolving = new LinkedHashSet<>();
+
+    Interpolator(final PersistentMap.Builder builder) {
+        this.builder = builder;
+    }
+
+    /**
+     * Registers a value put to the builder, later values of the same key replaces earlier ones.
+     */
+    void add(final String key, final Object value) {
+        if (value instanceof String && ((String)value).contains(PLACEHOLDER_PREFIX)) {
+            unresolved.put(key, (String)value);
+        }
+        else {
+            unresolved.remove(key);
+        }
+    }
+
+    /**
+     * Resolves all registered values and puts them to the builder.
+     *
+     * @throws ConfigException on circular references
+     */
+    void resolve() {
+        for (final String key : new ArrayList<>(unresolved.keySet())) {
+            if (unresolved.containsKey(key)) {
+                resolve(key);
+            }
+        }
+    }
+
+    private String resolve(final String key) {
+        if (!resolving.add(key)) {
+            throw new ConfigException("Circular config reference: "
+                    + String.join(" -> ", resolving) + " -> " + key);
+        }
+        final String value = unresolved.get(key);
+        final StringBuilder resolved = new StringBuilder(value.length());
+        int from = 0;
+        int start;
+        while ((start = value.indexOf(PLACEHOLDER_PREFIX, from)) >= 0) {
+            final int end = value.indexOf(PLACEHOLDER_SUFFIX, start + PLACEHOLDER_PREFIX.length());
+            if (end < 0) {
+                break;
+            }
+            resolved.append(value, from, start);
+            final String placeholder = value.substring(start + PLACEHOLDER_PREFIX.length(), end);
+            final int sep = placeholder.indexOf(VALUE_SEPARATOR);
+            final String ref = sep < 0 ? placeholder : placeholder.substring(0, sep);
+            final Object refValue = lookup(ref);
+            if (refValue != MISSING) {
+                resolved.append(refValue);
+            }
+            else if (sep >= 0) {
+                resolved.append(placeholder, sep + VALUE_SEPARATOR.length(), placeholder.length());
+            }
+            else {
+                resolved.append(value, start, end + PLACEHOLDER_SUFFIX.length());    // leave as is
+            }
+            from = end + PLACEHOLDER_SUFFIX.length();
+        }
+        resolved.append(value, from, value.length());
+        final String ret = resolved.toString();
+        builder.put(key, ret);
+        unresolved.remove(key);
+        resolving.remove(key);
+        return ret;
+    }
+
+    private Object lookup(final String key) {
+        if (unresolved.containsKey(key)) {
+            return resolve(key);
+        }
+        final Object value = builder.get(key, MISSING);
+        if (value instanceof Encrypted) {
+            throw new ConfigException("Encrypted config key '" + key + "' cannot be referenced");
+        }
+        return value instanceof Lazy ? ((Lazy<?>)value).getValue() : value;
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.ctzen.config;
+
+import com.ctzen.config.exception.ConfigException;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Reads the secret key from a keystore file, e.g. a PKCS12 keystore made with
+ * {@code keytool -genseckey -keyalg AES -keysize 256 -storetype PKCS12 -keystore config.p12 -alias config}
+ * <p>
+ * The keystore is read once, on the first decryption. The passwords are wiped once the key is read,
+ * a failed read can be retried.
+ * </p>
+ *
+ * @author cchang
+ */
+public class KeyStoreSecretKeySource implements SecretKeySource {
+
+    /**
+     * @param path          keystore file
+     * @param type          keystore type, e.g. {@code "PKCS12"}
+     * @param storePassword keystore password, copied
+     * @param alias         alias of the secret key
+     * @param keyPassword   key password, copied, null to use {@code storePassword}
+     */
+    public KeyStoreSecretKeySource(final Path path, final String type, final char[] storePassword,
+                                   final String alias, final char[] keyPassword) {
+        this.path = Objects.requireNonNull(path);
+        this.type = Objects.requireNonNull(type);
+        this.storePassword = storePassword.clone();
+        this.alias = Objects.requireNonNull(alias);
+        this.keyPassword = (keyPassword == null ? storePassword : keyPassword).clone();
+    }
+
+    private final Path path;
+
+    private final String type;
+
+    private final char[] storePassword;
+
+    private final String alias;
+
+    private final char[] keyPassword;
+
+    private SecretKey secretKey;
+
+    @Override
+    public synchronized SecretKey getSecretKey() {
+        if (secretKey == null) {
+            try (InputStream in = Files.newInputStream(path)) {
+                final KeyStore keyStore = KeyStore.getInstance(type);
+                keyStore.load(in, storePassword);
+                final Key key = keyStore.getKey(alias, keyPassword);
+                if (!(key instanceof SecretKey)) {
+                    throw new ConfigException("No secret key '" + alias + "' in keystore: " + path);
+                }
+                secretKey = (SecretKey)key;
+            }
+            catch (final IOException | GeneralSecurityException e) {
+                throw new ConfigException("Error reading keystore: " + path, e);
+            }
+            // kept for retries until read
+            Arrays.fill(storePassword, '\0');
+            Arrays.fill(keyPassword, '\0');
+        }
+        return secretKey;
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.ctzen.config;
+
+import com.ctzen.config.loader.FlatConfigObject;
+import groovy.util.ConfigObject;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Flattens config layers straight into dotted keys, later layers over earlier ones,
+ * with the same outcome as {@link ConfigObject#merge(ConfigObject)} then flattening, in one pass per layer:
+ * <ul>
+ *     <li>a value replaces a config block, and a config block replaces a value</li>
+ *     <li>a map value is merged into a non-empty map value, or into a config block</li>
+ * </ul>
+ * <p>
+ * The one difference: the dotted keys of a {@link FlatConfigObject}, as JSON and YAML files load, are leaves of
+ * their config blocks, so these rules hold across formats. Dotted keys of other layers are single keys, as they are
+ * to merge, e.g. properties {@code log.level} and {@code log.level.foo} are both kept.
+ * </p>
+ * <p>
+ * Keys are built in one reused buffer, only leaves and blocks get a String key.
+ * The layers are not modified. Not thread-safe.
+ * </p>
+ *
+ * @author cchang
+ */
+final class LayerMerger {
+
+    private final Map<String, Object> entries = new HashMap<>(256);
+
+    /**
+     * Keys of non-empty config blocks.
+     */
+    private final Set<String> blocks = new HashSet<>();
+
+    private final StringBuilder path = new StringBuilder(128);
+
+    /**
+     * Merging a {@link FlatConfigObject}, whose dotted keys are leaves of config blocks.
+     */
+    private boolean flat;
+
+    void merge(final ConfigObject layer) {
+        path.setLength(0);
+        flat = layer instanceof FlatConfigObject;
+        mergeBlock(layer);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    void forEach(final BiConsumer<String, Object> action) {
+        entries.forEach(action);
+    }
+
+    private void mergeBlock(final Map<?,?> block) {
+        final int length = path.length();
+        for (final Map.Entry<?,?> entry : block.entrySet()) {
+            if (length > 0) {
+                path.append('.');
+            }
+            final int start = path.length();
+            path.append(entry.getKey());
+            final String key = path.toString();
+            if (flat && key.indexOf('.', start) >= 0) {
+                addAncestorBlocks(key, start);
+            }
+            final Object value = entry.getValue();
+            final boolean isBlock = !blocks.isEmpty() && blocks.contains(key);
+            if (value instanceof ConfigObject || (isBlock && value instanceof Map)) {
+                final Object existing = entries.get(key);
+                if (isMergeableMap(existing)) {
+                    entries.put(key, mergeMaps((Map<?,?>)existing, (Map<?,?>)value));
+                }
+                else {
+                    entries.remove(key);
+                    if (!((Map<?,?>)value).isEmpty()) {
+                        blocks.add(key);
+                        mergeBlock((Map<?,?>)value);
+                    }
+                }
+            }
+            else {
+                if (isBlock) {
+                    removeBlock(key);
+                    entries.put(key, value);
+                }
+                else {
+                    final Object existing = entries.put(key, value);
+                    if (isMergeableMap(existing) && value instanceof Map) {
+                        entries.put(key, mergeMaps((Map<?,?>)existing, (Map<?,?>)value));
+                    }
+                }
+            }
+            path.setLength(length);
+        }
+    }
+
+    /**
+     * A dotted key of a {@link FlatConfigObject} is a leaf of blocks: each of them replaces a value.
+     *
+     * @param start     where the dotted part of {@code key} starts
+     */
+    private void addAncestorBlocks(final String key, final int start) {
+        for (int dot = key.indexOf('.', start); dot >= 0; dot = key.indexOf('.', dot + 1)) {
+            final String ancestor = key.substring(0, dot);
+            if (blocks.add(ancestor)) {
+                entries.remove(ancestor);
+            }
+        }
+    }
+
+    private static boolean isMergeableMap(final Object value) {
+        return value instanceof Map && !((Map<?,?>)value).isEmpty();
+    }
+
+    /**
+     * Removes a block and everything in it, rare.
+     */
+    private void removeBlock(final String key) {
+        final String prefix = key + '.';
+        entries.keySet().removeIf(k -> k.startsWith(prefix));
+        blocks.remove(key);
+        blocks.removeIf(block -> block.startsWith(prefix));
+    }
+
+    /**
+     * {@link ConfigObject#merge(ConfigObject)} rules on copies.
+     */
+    private static Map<Object, Object> mergeMaps(final Map<?,?> map, final Map<?,?> other) {
+        final Map<Object, Object> merged = new LinkedHashMap<>(map);
+        other.forEach((key, value) -> {
+            final Object existing = merged.get(key);
+            merged.put(key, isMergeableMap(existing) && value instanceof Map
+                            ? mergeMaps((Map<?,?>)existing, (Map<?,?>)value)
+                            : value);
+        });
+        return merged;
+    }
+
+}
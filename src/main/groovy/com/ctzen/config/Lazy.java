@@ -0,0 +1,104 @@
+package com.ctzen.config;
+
+import groovy.lang.Closure;
+import groovy.lang.GString;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Config value computed on first access, then remembered,
+ * use for expensive and rarely used values, for example.
+ * <p>
+ * {@code report = new Lazy({ expensiveReport() })}
+ * </p>
+ * <p>
+ * Evaluated at most once even if accessed by many threads at the same time.
+ * A {@link GString} result is converted to a String.
+ * </p>
+ * <p>
+ * The closure runs after the config script has finished, use local variables to refer to other values.
+ * </p>
+ * <p>
+ * Lazy values are equal if computed from equal sources, without evaluating them: a supplier or a closure is only
+ * equal to itself, a lazy GString is equal to one of the same strings and values.
+ * </p>
+ *
+ * @author cchang
+ */
+public class Lazy<E> {
+
+    public Lazy(Supplier<? extends E> supplier) {
+        this(supplier, supplier);
+    }
+
+    public Lazy(Closure<? extends E> closure) {
+        this(closure, closure::call);
+    }
+
+    /**
+     * @param source    what the value is computed from, for {@link #equals(Object)}
+     */
+    Lazy(final Object source, final Supplier<? extends E> supplier) {
+        this.source = source;
+        this.supplier = Objects.requireNonNull(supplier);
+    }
+
+    /**
+     * @return the GString evaluated on first access
+     */
+    static Lazy<String> of(final GString gstring) {
+        final List<Object> source = Arrays.asList(Arrays.asList(gstring.getStrings()),
+                                                  Arrays.asList(gstring.getValues()));
+        return new Lazy<>(source, gstring::toString);
+    }
+
+    private final Object source;
+
+    private volatile Supplier<? extends E> supplier;    // null once evaluated
+
+    private E value;    // published by the supplier volatile write
+
+    public E getValue() {
+        if (supplier != null) {
+            synchronized (this) {
+                final Supplier<? extends E> s = supplier;
+                if (s != null) {
+                    value = toFinalValue(s.get());
+                    supplier = null;
+                }
+            }
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E toFinalValue(final E value) {
+        return value instanceof GString ? (E)value.toString() : value;
+    }
+
+    /**
+     * @return {@code true} if the value has been computed
+     */
+    public boolean isEvaluated() {
+        return supplier == null;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return o != null && o.getClass() == getClass() && Objects.equals(source, ((Lazy<?>)o).source);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(source);
+    }
+
+    @Override
+    public String toString() {
+        return isEvaluated() ? String.valueOf(value) : "<not evaluated>";
+    }
+
+}
@@ -0,0 +1,567 @@
+package com.ctzen.config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable hash array mapped trie of config entries.
+ * <p>
+ * Every update returns a new map sharing all untouched nodes with the original, so many maps derived from
+ * the same base (e.g. a parent {@link Config} and its overlays) cost memory proportional to their differences only.
+ * </p>
+ * <p>
+ * Keys are never null, values may be null.
+ * </p>
+ *
+ * @author cchang
+ */
+final class PersistentMap {
+
+    static final PersistentMap EMPTY = new PersistentMap(null, 0);
+
+    /**
+     * Passed to {@link DiffHandler} for the missing side of an added or removed entry.
+     */
+    static final Object ABSENT = new Object();
+
+    private static final Object NOT_FOUND = new Object();
+
+    private final Node root;
+
+    private final int size;
+
+    private PersistentMap(final Node root, final int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param key       key to search
+     * @param notFound  returned if {@code key} is absent
+     * @return value associated with {@code key}, or {@code notFound}
+     */
+    Object get(final String key, final Object notFound) {
+        return root == null ? notFound : root.find(0, hash(key), key, notFound);
+    }
+
+    boolean containsKey(final String key) {
+        return get(key, NOT_FOUND) != NOT_FOUND;
+    }
+
+    /**
+     * @return a new map with {@code key} associated with {@code value}, or this map if unchanged
+     */
+    PersistentMap plus(final String key, final Object value) {
+        final boolean[] added = new boolean[1];
+        final Node base = root == null ? BitmapNode.EMPTY : root;
+        final Node newRoot = base.assoc(null, 0, hash(key), key, value, added);
+        return newRoot == root ? this : new PersistentMap(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * @return a new map without {@code key}, or this map if {@code key} is absent
+     */
+    PersistentMap minus(final String key) {
+        if (root == null) {
+            return this;
+        }
+        final boolean[] removed = new boolean[1];
+        final Node newRoot = root.without(null, 0, hash(key), key, removed);
+        return removed[0] ? new PersistentMap(newRoot, size - 1) : this;
+    }
+
+    void forEach(final BiConsumer<String, Object> action) {
+        if (root != null) {
+            root.forEach(action);
+        }
+    }
+
+    /**
+     * @return keys in no particular order
+     */
+    List<String> keys() {
+        final List<String> keys = new ArrayList<>(size);
+        forEach((key, value) -> keys.add(key));
+        return keys;
+    }
+
+    /**
+     * Receives the differences found by {@link #diff(PersistentMap, DiffHandler)}.
+     */
+    @FunctionalInterface
+    interface DiffHandler {
+
+        /**
+         * @param key   key of the entry added, removed, or changed
+         * @param from  value in the original map, or {@link #ABSENT}
+         * @param to    value in the other map, or {@link #ABSENT}
+         */
+        void handle(String key, Object from, Object to);
+
+    }
+
+    /**
+     * Reports entries that differ between this map and {@code to}.
+     * <p>
+     * Nodes shared by both maps are skipped, cost is proportional to the differences for maps derived from
+     * one another.
+     * </p>
+     *
+     * @param to        the other map
+     * @param handler   receives each difference
+     */
+    void diff(final PersistentMap to, final DiffHandler handler) {
+        diff(root, to.root, handler);
+    }
+
+    /**
+     * @return a builder starting off with the entries of this map
+     */
+    Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Batches many updates without copying a node more than once.
+     * <p>
+     * Nodes created by the builder are mutated in place until {@link #build()}, nodes of the source map are
+     * copied on first write. Not thread-safe.
+     * </p>
+     */
+    static final class Builder {
+
+        private Object edit = new Object();
+
+        private Node root;
+
+        private int size;
+
+        private PersistentMap previous = EMPTY;
+
+        private Builder(final PersistentMap source) {
+            this.root = source.root;
+            this.size = source.size;
+        }
+
+        /**
+         * Values put equal to those of {@code previous} are replaced by the previous instances, so nodes of the
+         * source map holding them are not copied, and maps built over a previous version share its instances.
+         *
+         * @return this builder
+         */
+        Builder reusing(final PersistentMap previous) {
+            this.previous = previous;
+            return this;
+        }
+
+        int size() {
+            return size;
+        }
+
+        Object get(final String key, final Object notFound) {
+            return root == null ? notFound : root.find(0, hash(key), key, notFound);
+        }
+
+        Builder put(final String key, Object value) {
+            if (previous.root != null) {
+                final Object previousValue = previous.get(key, NOT_FOUND);
+                if (previousValue != NOT_FOUND && Objects.equals(previousValue, value)) {
+                    value = previousValue;
+                }
+            }
+            final boolean[] added = new boolean[1];
+            final Node base = root == null ? BitmapNode.EMPTY : root;
+            root = base.assoc(edit, 0, hash(key), key, value, added);
+            if (added[0]) {
+                ++size;
+            }
+            return this;
+        }
+
+        Builder remove(final String key) {
+            if (root != null) {
+                final boolean[] removed = new boolean[1];
+                root = root.without(edit, 0, hash(key), key, removed);
+                if (removed[0]) {
+                    --size;
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Must not put or remove while iterating.
+         */
+        void forEach(final BiConsumer<String, Object> action) {
+            if (root != null) {
+                root.forEach(action);
+            }
+        }
+
+        /**
+         * @return the built map, the builder remains usable without affecting the returned map
+         */
+        PersistentMap build() {
+            edit = new Object();    // nodes handed out must never be mutated again
+            return size == 0 ? EMPTY : new PersistentMap(root, size);
+        }
+
+    }
+
+    /*====================================================================================================
+     * NODES
+     *====================================================================================================*/
+
+    private static final int BITS = 5;
+
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static int hash(final String key) {
+        final int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bitpos(final int hash, final int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private abstract static class Node {
+
+        /**
+         * Builder token owning this node, a node is only ever mutated in place by its owning builder.
+         */
+        final Object edit;
+
+        Node(final Object edit) {
+            this.edit = edit;
+        }
+
+        boolean editable(final Object edit) {
+            return edit != null && edit == this.edit;
+        }
+
+        abstract Object find(int shift, int hash, String key, Object notFound);
+
+        abstract Node assoc(Object edit, int shift, int hash, String key, Object value, boolean[] added);
+
+        /**
+         * @return the node without {@code key}, or null if it became empty
+         */
+        abstract Node without(Object edit, int shift, int hash, String key, boolean[] removed);
+
+        abstract void forEach(BiConsumer<String, Object> action);
+
+    }
+
+    /**
+     * Array holds key/value pairs, a null key means the value is a sub-node.
+     */
+    private static final class BitmapNode extends Node {
+
+        static final BitmapNode EMPTY = new BitmapNode(null, 0, new Object[0]);
+
+        int bitmap;
+
+        Object[] array;
+
+        BitmapNode(final Object edit, final int bitmap, final Object[] array) {
+            super(edit);
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private int index(final int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        /**
+         * @return the sub-node at {@code bit}, a single entry node if it is a leaf, or null if empty
+         */
+        Node slot(final int bit) {
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            final int idx = index(bit);
+            final Object k = array[2 * idx];
+            final Object v = array[2 * idx + 1];
+            return k == null ? (Node)v : new CollisionNode(null, hash((String)k), new Object[] { k, v });
+        }
+
+        @Override
+        Object find(final int shift, final int hash, final String key, final Object notFound) {
+            final int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return notFound;
+            }
+            final int idx = index(bit);
+            final Object k = array[2 * idx];
+            final Object v = array[2 * idx + 1];
+            if (k == null) {
+                return ((Node)v).find(shift + BITS, hash, key, notFound);
+            }
+            return key.equals(k) ? v : notFound;
+        }
+
+        @Override
+        Node assoc(final Object edit, final int shift, final int hash, final String key, final Object value,
+                   final boolean[] added) {
+            final int bit = bitpos(hash, shift);
+            final int idx = index(bit);
+            if ((bitmap & bit) != 0) {
+                final Object k = array[2 * idx];
+                final Object v = array[2 * idx + 1];
+                if (k == null) {
+                    final Node n = ((Node)v).assoc(edit, shift + BITS, hash, key, value, added);
+                    return n == v ? this : set(edit, 2 * idx + 1, n);
+                }
+                if (key.equals(k)) {
+                    return v == value ? this : set(edit, 2 * idx + 1, value);
+                }
+                added[0] = true;
+                final Node sub = createNode(edit, shift + BITS, (String)k, v, hash, key, value);
+                return set(edit, 2 * idx, null, sub);
+            }
+            added[0] = true;
+            final int n = Integer.bitCount(bitmap);
+            final Object[] newArray = new Object[2 * (n + 1)];
+            System.arraycopy(array, 0, newArray, 0, 2 * idx);
+            newArray[2 * idx] = key;
+            newArray[2 * idx + 1] = value;
+            System.arraycopy(array, 2 * idx, newArray, 2 * (idx + 1), 2 * (n - idx));
+            if (editable(edit)) {
+                this.array = newArray;
+                this.bitmap |= bit;
+                return this;
+            }
+            return new BitmapNode(edit, bitmap | bit, newArray);
+        }
+
+        @Override
+        Node without(final Object edit, final int shift, final int hash, final String key, final boolean[] removed) {
+            final int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            final int idx = index(bit);
+            final Object k = array[2 * idx];
+            final Object v = array[2 * idx + 1];
+            if (k == null) {
+                final Node n = ((Node)v).without(edit, shift + BITS, hash, key, removed);
+                if (n == v) {
+                    return this;
+                }
+                if (n != null) {
+                    return set(edit, 2 * idx + 1, n);
+                }
+            }
+            else if (key.equals(k)) {
+                removed[0] = true;
+            }
+            else {
+                return this;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            final int n = Integer.bitCount(bitmap);
+            final Object[] newArray = new Object[2 * (n - 1)];
+            System.arraycopy(array, 0, newArray, 0, 2 * idx);
+            System.arraycopy(array, 2 * (idx + 1), newArray, 2 * idx, 2 * (n - idx - 1));
+            if (editable(edit)) {
+                this.array = newArray;
+                this.bitmap ^= bit;
+                return this;
+            }
+            return new BitmapNode(edit, bitmap ^ bit, newArray);
+        }
+
+        private BitmapNode set(final Object edit, final int i, final Object o) {
+            if (editable(edit)) {
+                array[i] = o;
+                return this;
+            }
+            final Object[] newArray = array.clone();
+            newArray[i] = o;
+            return new BitmapNode(edit, bitmap, newArray);
+        }
+
+        private BitmapNode set(final Object edit, final int i, final Object key, final Object value) {
+            final BitmapNode node = editable(edit) ? this : new BitmapNode(edit, bitmap, array.clone());
+            node.array[i] = key;
+            node.array[i + 1] = value;
+            return node;
+        }
+
+        @Override
+        void forEach(final BiConsumer<String, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] == null) {
+                    ((Node)array[i + 1]).forEach(action);
+                }
+                else {
+                    action.accept((String)array[i], array[i + 1]);
+                }
+            }
+        }
+
+    }
+
+    private static void diff(final Node from, final Node to, final DiffHandler handler) {
+        if (from == to) {
+            return;
+        }
+        if (from == null) {
+            to.forEach((key, value) -> handler.handle(key, ABSENT, value));
+        }
+        else if (to == null) {
+            from.forEach((key, value) -> handler.handle(key, value, ABSENT));
+        }
+        else if (from instanceof BitmapNode && to instanceof BitmapNode) {
+            final BitmapNode f = (BitmapNode)from;
+            final BitmapNode t = (BitmapNode)to;
+            int bits = f.bitmap | t.bitmap;
+            while (bits != 0) {
+                final int bit = Integer.lowestOneBit(bits);
+                bits ^= bit;
+                final Node fSlot = f.slot(bit);
+                final Node tSlot = t.slot(bit);
+                diff(fSlot, tSlot, handler);
+            }
+        }
+        else {
+            diffEntries(from, to, handler);
+        }
+    }
+
+    private static void diffEntries(final Node from, final Node to, final DiffHandler handler) {
+        final Map<String, Object> fromEntries = new HashMap<>();
+        from.forEach(fromEntries::put);
+        to.forEach((key, value) -> {
+            if (fromEntries.containsKey(key)) {
+                final Object fromValue = fromEntries.remove(key);
+                if (!Objects.equals(fromValue, value)) {
+                    handler.handle(key, fromValue, value);
+                }
+            }
+            else {
+                handler.handle(key, ABSENT, value);
+            }
+        });
+        fromEntries.forEach((key, value) -> handler.handle(key, value, ABSENT));
+    }
+
+    private static Node createNode(final Object edit, final int shift,
+                                   final String key1, final Object value1,
+                                   final int hash2, final String key2, final Object value2) {
+        final int hash1 = hash(key1);
+        if (hash1 == hash2) {
+            return new CollisionNode(edit, hash1, new Object[] { key1, value1, key2, value2 });
+        }
+        final boolean[] added = new boolean[1];
+        return BitmapNode.EMPTY.assoc(edit, shift, hash1, key1, value1, added)
+                               .assoc(edit, shift, hash2, key2, value2, added);
+    }
+
+    /**
+     * Keys with the same full hash.
+     */
+    private static final class CollisionNode extends Node {
+
+        final int hash;
+
+        Object[] array;
+
+        CollisionNode(final Object edit, final int hash, final Object[] array) {
+            super(edit);
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int indexOf(final String key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(final int shift, final int hash, final String key, final Object notFound) {
+            final int i = indexOf(key);
+            return i < 0 ? notFound : array[i + 1];
+        }
+
+        @Override
+        Node assoc(final Object edit, final int shift, final int hash, final String key, final Object value,
+                   final boolean[] added) {
+            if (hash != this.hash) {
+                // nest in a bitmap node and try again
+                return new BitmapNode(edit, bitpos(this.hash, shift), new Object[] { null, this })
+                        .assoc(edit, shift, hash, key, value, added);
+            }
+            final int i = indexOf(key);
+            final Object[] newArray;
+            if (i < 0) {
+                added[0] = true;
+                newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, array.length);
+                newArray[array.length] = key;
+                newArray[array.length + 1] = value;
+            }
+            else {
+                if (array[i + 1] == value) {
+                    return this;
+                }
+                newArray = array.clone();
+                newArray[i + 1] = value;
+            }
+            if (editable(edit)) {
+                array = newArray;
+                return this;
+            }
+            return new CollisionNode(edit, hash, newArray);
+        }
+
+        @Override
+        Node without(final Object edit, final int shift, final int hash, final String key, final boolean[] removed) {
+            final int i = indexOf(key);
+            if (i < 0) {
+                return this;
+            }
+            removed[0] = true;
+            if (array.length == 2) {
+                return null;
+            }
+            final Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, i);
+            System.arraycopy(array, i + 2, newArray, i, array.length - i - 2);
+            if (editable(edit)) {
+                array = newArray;
+                return this;
+            }
+            return new CollisionNode(edit, hash, newArray);
+        }
+
+        @Override
+        void forEach(final BiConsumer<String, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                action.accept((String)array[i], array[i + 1]);
+            }
+        }
+
+    }
+
+}
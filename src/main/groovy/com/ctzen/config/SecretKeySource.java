@@ -0,0 +1,22 @@
+package com.ctzen.config;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Supplies the key decrypting {@link Encrypted} config values.
+ *
+ * @author cchang
+ * @see KeyStoreSecretKeySource
+ * @see Config#setSecretKeySource(SecretKeySource)
+ */
+@FunctionalInterface
+public interface SecretKeySource {
+
+    /**
+     * Called on the first decryption, may be slow.
+     *
+     * @return an AES key
+     */
+    SecretKey getSecretKey();
+
+}
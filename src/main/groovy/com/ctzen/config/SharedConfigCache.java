@@ -0,0 +1,92 @@
+package com.ctzen.config;
+
+import com.ctzen.config.exception.ConfigException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Process-wide cache of loaded config entries, shared by {@link Config}s with {@link Config#setSharedCache(boolean)}.
+ * <p>
+ * Keyed by the profiles, the locations, their loaders and {@link ConfigLoader#fingerprint(String, java.util.List) fingerprints}
+ * (content hashes), so identical configs are loaded once per JVM, and a changed resource is loaded again.
+ * Size bounded, and entries are softly referenced so they can be reclaimed under memory pressure.
+ * </p>
+ *
+ * @author cchang
+ */
+public final class SharedConfigCache {
+
+    /**
+     * Default max number of cached configs.
+     */
+    public static final int DEFAULT_MAX_SIZE = 64;
+
+    private SharedConfigCache() {
+    }
+
+    private static volatile Cache<String, Config.Loaded> cache = newCache(DEFAULT_MAX_SIZE);
+
+    private static Cache<String, Config.Loaded> newCache(final int maxSize) {
+        return CacheBuilder.newBuilder()
+                           .maximumSize(maxSize)
+                           .softValues()
+                           .recordStats()
+                           .build();
+    }
+
+    /**
+     * Replaces the cache with an empty one.
+     *
+     * @param maxSize   max number of cached configs
+     */
+    public static void setMaxSize(final int maxSize) {
+        cache = newCache(maxSize);
+    }
+
+    public static void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return approximate number of cached configs
+     */
+    public static long size() {
+        return cache.size();
+    }
+
+    public static long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public static long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    /**
+     * Concurrent loads of the same key wait for one of them.
+     */
+    static Config.Loaded get(final String key, final Callable<Config.Loaded> loader) {
+        try {
+            return cache.get(key, loader);
+        }
+        catch (final UncheckedExecutionException | ExecutionError e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw e;
+        }
+        catch (final ExecutionException e) {
+            throw new ConfigException("Error loading config", e.getCause());
+        }
+    }
+
+}
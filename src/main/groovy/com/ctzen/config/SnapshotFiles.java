@@ -0,0 +1,507 @@
+package com.ctzen.config;
+
+import com.ctzen.config.exception.ConfigException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Flattened config snapshots in the files of a shared directory, written by a publishing config,
+ * memory-mapped by subscribing configs.
+ * <p>
+ * A file is named {@code snapshot-<sequence>.scfg}, the newest has the highest sequence. It holds:
+ * magic, format, load time, profiles, redact keys, entries (key, value length, tagged value),
+ * and the CRC32C of all that.
+ * </p>
+ * <p>
+ * Strings, big numbers, lists and maps are decoded from the mapped file on first access,
+ * as {@link Lazy} values that equal when their encodings do.
+ * </p>
+ *
+ * @author cchang
+ */
+final class SnapshotFiles {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SnapshotFiles.class);
+
+    static final String PREFIX = "snapshot-";
+
+    static final String SUFFIX = ".scfg";
+
+    /**
+     * Files kept, older files are deleted when a new one is written.
+     */
+    static final int KEEP = 3;
+
+    private static final int MAGIC = 0x53434647;    // "SCFG"
+
+    private static final int FORMAT = 1;
+
+    private static final byte T_NULL = 0;
+    private static final byte T_TRUE = 1;
+    private static final byte T_FALSE = 2;
+    private static final byte T_INTEGER = 3;
+    private static final byte T_LONG = 4;
+    private static final byte T_SHORT = 5;
+    private static final byte T_BYTE = 6;
+    private static final byte T_CHARACTER = 7;
+    private static final byte T_DOUBLE = 8;
+    private static final byte T_FLOAT = 9;
+    private static final byte T_STRING = 10;
+    private static final byte T_BIG_DECIMAL = 11;
+    private static final byte T_BIG_INTEGER = 12;
+    private static final byte T_LIST = 13;
+    private static final byte T_MAP = 14;
+    private static final byte T_ENCRYPTED = 15;
+
+    private SnapshotFiles() {
+    }
+
+    /**
+     * Encodes loaded entries, {@link Lazy} values are evaluated.
+     *
+     * @throws ConfigException if a value cannot be encoded
+     */
+    static byte[] encode(final long loadTime, final List<String> profiles, final Set<String> redactKeys,
+                         final PersistentMap entries) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        final ByteArrayOutputStream valueBytes = new ByteArrayOutputStream(256);
+        try {
+            final DataOutputStream out = new DataOutputStream(bytes);
+            final DataOutputStream valueOut = new DataOutputStream(valueBytes);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(loadTime);
+            writeStrings(out, profiles);
+            writeStrings(out, redactKeys);
+            out.writeInt(entries.size());
+            final IOException[] failure = new IOException[1];
+            entries.forEach((key, value) -> {
+                try {
+                    valueBytes.reset();
+                    writeValue(valueOut, key, value);
+                    valueOut.flush();
+                    writeString(out, key);
+                    out.writeInt(valueBytes.size());
+                    valueBytes.writeTo(out);
+                }
+                catch (final IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            out.flush();
+            final CRC32C crc = new CRC32C();
+            crc.update(bytes.toByteArray());
+            out.writeInt((int)crc.getValue());
+            out.flush();
+        }
+        catch (final IOException e) {
+            throw new ConfigException("Error encoding snapshot", e);    // not from a byte array
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeStrings(final DataOutputStream out, final Collection<String> strings)
+            throws IOException {
+        out.writeInt(strings.size());
+        for (final String s : strings) {
+            writeString(out, s);
+        }
+    }
+
+    private static void writeString(final DataOutputStream out, final String s) throws IOException {
+        final byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static void writeValue(final DataOutputStream out, final String key, final Object value)
+            throws IOException {
+        if (value == null) {
+            out.writeByte(T_NULL);
+        }
+        else if (value instanceof Lazy) {
+            writeValue(out, key, ((Lazy<?>)value).getValue());
+        }
+        else if (value instanceof Boolean) {
+            out.writeByte((Boolean)value ? T_TRUE : T_FALSE);
+        }
+        else if (value instanceof Integer) {
+            out.writeByte(T_INTEGER);
+            out.writeInt((Integer)value);
+        }
+        else if (value instanceof Long) {
+            out.writeByte(T_LONG);
+            out.writeLong((Long)value);
+        }
+        else if (value instanceof Short) {
+            out.writeByte(T_SHORT);
+            out.writeShort((Short)value);
+        }
+        else if (value instanceof Byte) {
+            out.writeByte(T_BYTE);
+            out.writeByte((Byte)value);
+        }
+        else if (value instanceof Character) {
+            out.writeByte(T_CHARACTER);
+            out.writeChar((Character)value);
+        }
+        else if (value instanceof Double) {
+            out.writeByte(T_DOUBLE);
+            out.writeDouble((Double)value);
+        }
+        else if (value instanceof Float) {
+            out.writeByte(T_FLOAT);
+            out.writeFloat((Float)value);
+        }
+        else if (value instanceof String) {
+            out.writeByte(T_STRING);
+            writeString(out, (String)value);
+        }
+        else if (value instanceof BigDecimal) {
+            out.writeByte(T_BIG_DECIMAL);
+            writeString(out, value.toString());
+        }
+        else if (value instanceof BigInteger) {
+            out.writeByte(T_BIG_INTEGER);
+            writeString(out, value.toString());
+        }
+        else if (value instanceof Encrypted) {
+            out.writeByte(T_ENCRYPTED);
+            writeString(out, ((Encrypted)value).toBase64());
+        }
+        else if (value instanceof List) {
+            final List<?> list = (List<?>)value;
+            out.writeByte(T_LIST);
+            out.writeInt(list.size());
+            for (final Object element : list) {
+                writeValue(out, key, element);
+            }
+        }
+        else if (value instanceof Map) {
+            final Map<?, ?> map = (Map<?, ?>)value;
+            out.writeByte(T_MAP);
+            out.writeInt(map.size());
+            for (final Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(out, key, entry.getKey());
+                writeValue(out, key, entry.getValue());
+            }
+        }
+        else {
+            throw new ConfigException("Cannot publish config key '" + key + "', unsupported type "
+                                      + value.getClass().getName());
+        }
+    }
+
+    /**
+     * Writes a new file, the newest, and deletes the files older than the {@link #KEEP} newest.
+     *
+     * @return the new file
+     */
+    static Path write(final Path directory, final byte[] encoded) {
+        try {
+            Files.createDirectories(directory);
+            final Path temp = Files.createTempFile(directory, "." + PREFIX, ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    final ByteBuffer buffer = ByteBuffer.wrap(encoded);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    channel.force(true);
+                }
+                long sequence = files(directory).stream().findFirst().map(SnapshotFiles::sequence).orElse(0L);
+                while (true) {
+                    final Path file = directory.resolve(name(++sequence));
+                    try {
+                        Files.createLink(file, temp);   // fails if another publisher took the sequence
+                        return file;
+                    }
+                    catch (final FileAlreadyExistsException e) {
+                        LOG.debug("Snapshot sequence taken: {}", file);
+                    }
+                }
+            }
+            finally {
+                Files.deleteIfExists(temp);
+                prune(directory);
+            }
+        }
+        catch (final IOException e) {
+            throw new ConfigException("Error writing snapshot to " + directory, e);
+        }
+    }
+
+    private static void prune(final Path directory) throws IOException {
+        final List<Path> files = files(directory);
+        for (final Path file : files.subList(Math.min(KEEP, files.size()), files.size())) {
+            try {
+                Files.deleteIfExists(file);     // subscribers keep their mappings
+            }
+            catch (final IOException e) {
+                LOG.warn("Cannot delete old snapshot {}: {}", file, e.toString());
+            }
+        }
+    }
+
+    /**
+     * @return snapshot files, newest first
+     */
+    static List<Path> files(final Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(SnapshotFiles::isSnapshot)
+                        .sorted(Comparator.comparingLong(SnapshotFiles::sequence).reversed())
+                        .collect(Collectors.toList());
+        }
+    }
+
+    static boolean isSnapshot(final Path file) {
+        final String name = file.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX)
+               && name.length() == PREFIX.length() + 19 + SUFFIX.length();
+    }
+
+    private static String name(final long sequence) {
+        return String.format("%s%019d%s", PREFIX, sequence, SUFFIX);
+    }
+
+    private static long sequence(final Path file) {
+        final String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * A snapshot read from a file.
+     */
+    static final class Read {
+
+        Read(final Path file, final long loadTime, final List<String> profiles, final Set<String> redactKeys,
+             final PersistentMap entries) {
+            this.file = file;
+            this.loadTime = loadTime;
+            this.profiles = profiles;
+            this.redactKeys = redactKeys;
+            this.entries = entries;
+        }
+
+        final Path file;
+
+        final long loadTime;
+
+        final List<String> profiles;
+
+        final Set<String> redactKeys;
+
+        final PersistentMap entries;
+
+    }
+
+    /**
+     * Reads the newest good file, a corrupt file is skipped.
+     *
+     * @throws ConfigException if there is none
+     */
+    static Read readNewest(final Path directory) {
+        final List<Path> files;
+        try {
+            files = files(directory);
+        }
+        catch (final IOException e) {
+            throw new ConfigException("Error listing snapshots in " + directory, e);
+        }
+        for (final Path file : files) {
+            try {
+                return read(file);
+            }
+            catch (final ConfigException e) {
+                LOG.warn("Skip snapshot {}: {}", file, e.getMessage());
+            }
+        }
+        throw new ConfigException("No snapshot in " + directory);
+    }
+
+    /**
+     * Maps and checks a file.
+     *
+     * @throws ConfigException if the file is unreadable or corrupt
+     */
+    static Read read(final Path file) {
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        catch (final IOException e) {
+            throw new ConfigException("Error mapping snapshot " + file, e);
+        }
+        try {
+            final int length = buffer.limit() - Integer.BYTES;
+            if (length < 0) {
+                throw new ConfigException("Truncated snapshot");
+            }
+            final CRC32C crc = new CRC32C();
+            crc.update(buffer.duplicate().limit(length));
+            if ((int)crc.getValue() != buffer.getInt(length)) {
+                throw new ConfigException("Bad snapshot checksum");
+            }
+            final ByteBuffer in = buffer.duplicate().limit(length);
+            if (in.getInt() != MAGIC || in.getInt() != FORMAT) {
+                throw new ConfigException("Not a snapshot of format " + FORMAT);
+            }
+            final long loadTime = in.getLong();
+            final List<String> profiles = Collections.unmodifiableList(readStrings(in, new ArrayList<>()));
+            final Set<String> redactKeys = Collections.unmodifiableSet(readStrings(in, new LinkedHashSet<>()));
+            final int size = in.getInt();
+            final PersistentMap.Builder builder = PersistentMap.EMPTY.toBuilder();
+            for (int i = 0; i < size; i++) {
+                final String key = readString(in);
+                final int valueLength = in.getInt();
+                final ByteBuffer encoded = in.slice().limit(valueLength);
+                in.position(in.position() + valueLength);
+                builder.put(key, isEager(encoded.get(0)) ? readValue(encoded) : new MappedValue(encoded));
+            }
+            return new Read(file, loadTime, profiles, redactKeys, builder.build());
+        }
+        catch (final RuntimeException e) {
+            if (e instanceof ConfigException) {
+                throw e;
+            }
+            throw new ConfigException("Corrupt snapshot", e);
+        }
+    }
+
+    private static <C extends Collection<String>> C readStrings(final ByteBuffer in, final C strings) {
+        final int size = in.getInt();
+        for (int i = 0; i < size; i++) {
+            strings.add(readString(in));
+        }
+        return strings;
+    }
+
+    private static String readString(final ByteBuffer in) {
+        final int length = in.getInt();
+        final String s = StandardCharsets.UTF_8.decode(in.slice().limit(length)).toString();
+        in.position(in.position() + length);
+        return s;
+    }
+
+    /**
+     * Fixed size values, and encrypted values which stay encrypted, are decoded when read.
+     */
+    private static boolean isEager(final byte tag) {
+        return tag != T_STRING && tag != T_BIG_DECIMAL && tag != T_BIG_INTEGER && tag != T_LIST && tag != T_MAP;
+    }
+
+    private static Object readValue(final ByteBuffer in) {
+        final byte tag = in.get();
+        switch (tag) {
+            case T_NULL:
+                return null;
+            case T_TRUE:
+                return Boolean.TRUE;
+            case T_FALSE:
+                return Boolean.FALSE;
+            case T_INTEGER:
+                return in.getInt();
+            case T_LONG:
+                return in.getLong();
+            case T_SHORT:
+                return in.getShort();
+            case T_BYTE:
+                return in.get();
+            case T_CHARACTER:
+                return in.getChar();
+            case T_DOUBLE:
+                return in.getDouble();
+            case T_FLOAT:
+                return in.getFloat();
+            case T_STRING:
+                return readString(in);
+            case T_BIG_DECIMAL:
+                return new BigDecimal(readString(in));
+            case T_BIG_INTEGER:
+                return new BigInteger(readString(in));
+            case T_ENCRYPTED:
+                return new Encrypted(readString(in));
+            case T_LIST:
+                final int listSize = in.getInt();
+                final List<Object> list = new ArrayList<>(listSize);
+                for (int i = 0; i < listSize; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            case T_MAP:
+                final int mapSize = in.getInt();
+                final Map<Object, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < mapSize; i++) {
+                    map.put(readValue(in), readValue(in));
+                }
+                return map;
+            default:
+                throw new ConfigException("Bad snapshot value tag " + tag);
+        }
+    }
+
+    /**
+     * @return {@code value}, decoded if it is mapped from a snapshot file
+     */
+    static Object decoded(final Object value) {
+        return value instanceof MappedValue ? ((MappedValue)value).getValue() : value;
+    }
+
+    /**
+     * A value decoded from the mapped file on first access.
+     * Internal, {@link #decoded(Object)} before a value is seen as it was published.
+     */
+    static final class MappedValue extends Lazy<Object> {
+
+        MappedValue(final ByteBuffer encoded) {
+            super(() -> readValue(encoded.duplicate()));
+            this.encoded = encoded;
+        }
+
+        private final ByteBuffer encoded;
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof MappedValue && encoded.equals(((MappedValue)o).encoded);
+        }
+
+        @Override
+        public int hashCode() {
+            return encoded.hashCode();
+        }
+
+    }
+
+}
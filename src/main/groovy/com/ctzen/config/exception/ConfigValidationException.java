@@ -0,0 +1,30 @@
+package com.ctzen.config.exception;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * Config entries violate the {@link com.ctzen.config.ConfigSchema}.
+ *
+ * @author cchang
+ */
+public class ConfigValidationException extends ConfigException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ConfigValidationException(List<String> violations) {
+        super("Invalid config, " + violations.size() + " violation(s):\n    " + String.join("\n    ", violations));
+        this.violations = ImmutableList.copyOf(violations);
+    }
+
+    private final List<String> violations;
+
+    /**
+     * @return all violations, one message each
+     */
+    public List<String> getViolations() {
+        return violations;
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.ctzen.config.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of a lookup evaluating a {@link com.ctzen.config.Lazy} value.
+ *
+ * @author cchang
+ */
+@Name("com.ctzen.config.LazyEvaluation")
+@Label("Config Lazy Evaluation")
+@Category(ConfigLoadEvent.CATEGORY)
+@Description("Lookup computing a lazy config value")
+public class ConfigLazyEvaluationEvent extends Event {
+
+    @Label("Key")
+    public String key;
+
+}
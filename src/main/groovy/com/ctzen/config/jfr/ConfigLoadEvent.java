@@ -0,0 +1,38 @@
+package com.ctzen.config.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of a {@link com.ctzen.config.Config#load()}.
+ *
+ * @author cchang
+ */
+@Name("com.ctzen.config.Load")
+@Label("Config Load")
+@Category(ConfigLoadEvent.CATEGORY)
+@Description("Loading of a config")
+public class ConfigLoadEvent extends Event {
+
+    static final String CATEGORY = "Slurper Configuration";
+
+    @Label("Profiles")
+    public String profiles;
+
+    @Label("Location Count")
+    public int locationCount;
+
+    @Label("Key Count")
+    public int keyCount;
+
+    @Label("Derived")
+    @Description("Loaded over a parent config")
+    public boolean derived;
+
+    @Label("Success")
+    public boolean success;
+
+}
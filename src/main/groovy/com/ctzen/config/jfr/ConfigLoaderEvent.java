@@ -0,0 +1,33 @@
+package com.ctzen.config.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of a {@link com.ctzen.config.ConfigLoader#load(String, java.util.List)} call.
+ *
+ * @author cchang
+ */
+@Name("com.ctzen.config.Loader")
+@Label("Config Loader")
+@Category(ConfigLoadEvent.CATEGORY)
+@Description("Loading of a config location")
+public class ConfigLoaderEvent extends Event {
+
+    @Label("Location")
+    public String location;
+
+    @Label("Loader")
+    public Class<?> loader;
+
+    @Label("Profile Count")
+    public int profileCount;
+
+    @Label("Key Count")
+    @Description("Config entries loaded, over all profiles")
+    public int keyCount;
+
+}
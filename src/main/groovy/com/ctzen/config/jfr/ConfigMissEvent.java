@@ -0,0 +1,28 @@
+package com.ctzen.config.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of a config lookup of an absent key, sampled.
+ *
+ * @author cchang
+ */
+@Name("com.ctzen.config.Miss")
+@Label("Config Miss")
+@Category(ConfigLoadEvent.CATEGORY)
+@Description("Lookup of an absent config key, one in every sample interval misses is recorded")
+public class ConfigMissEvent extends Event {
+
+    public static final int SAMPLE_INTERVAL = 16;
+
+    @Label("Key")
+    public String key;
+
+    @Label("Sample Interval")
+    public int sampleInterval = SAMPLE_INTERVAL;
+
+}
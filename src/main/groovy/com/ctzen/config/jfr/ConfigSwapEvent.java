@@ -0,0 +1,29 @@
+package com.ctzen.config.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of config entries replaced by a load or an override.
+ *
+ * @author cchang
+ */
+@Name("com.ctzen.config.Swap")
+@Label("Config Swap")
+@Category(ConfigLoadEvent.CATEGORY)
+@Description("Publishing of new config entries")
+public class ConfigSwapEvent extends Event {
+
+    @Label("Cause")
+    public String cause;
+
+    @Label("Key Count")
+    public int keyCount;
+
+    @Label("Changed Key Count")
+    public int changedKeyCount;
+
+}
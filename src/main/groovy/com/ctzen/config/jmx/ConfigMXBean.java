@@ -0,0 +1,68 @@
+package com.ctzen.config.jmx;
+
+import com.ctzen.config.ConfigLocationStats;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Management interface of a {@link com.ctzen.config.Config}.
+ * <p>
+ * Attributes are read from the statistics computed after each load, never from the config entries.
+ * </p>
+ *
+ * @author cchang
+ */
+public interface ConfigMXBean {
+
+    /**
+     * @return number of config entries after the last load
+     */
+    int getKeyCount();
+
+    /**
+     * @return when the last load started, or null if never loaded
+     */
+    Date getLastLoadTime();
+
+    long getLastLoadDurationMillis();
+
+    /**
+     * @return number of loads, including failed ones
+     */
+    long getLoadCount();
+
+    long getLoadFailureCount();
+
+    /**
+     * @return status of each location as of its last load
+     */
+    List<ConfigLocationStats> getLocations();
+
+    long getLookupHitCount();
+
+    long getLookupMissCount();
+
+    /**
+     * @return ratio of lookup hits to all lookups, NaN if no lookup
+     */
+    double getLookupHitRate();
+
+    /**
+     * Reloads all locations.
+     */
+    void reload();
+
+    /**
+     * Reloads a single location.
+     *
+     * @param location  a loaded location
+     */
+    void reloadLocation(String location);
+
+    /**
+     * @return all config entries, with redacted values hidden
+     */
+    String dumpRedacted();
+
+}
@@ -0,0 +1,125 @@
+package com.ctzen.config.jmx;
+
+import com.ctzen.config.Config;
+import com.ctzen.config.ConfigLocationStats;
+import com.ctzen.config.ConfigStats;
+import com.ctzen.config.exception.ConfigException;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * {@link ConfigMXBean} implementation, registered by {@link Config#registerMBean(String)}.
+ *
+ * @author cchang
+ */
+public class ConfigManagement implements ConfigMXBean {
+
+    /**
+     * Object name domain.
+     */
+    public static final String DOMAIN = "com.ctzen.config";
+
+    public ConfigManagement(final Config config) {
+        this.config = config;
+    }
+
+    private final Config config;
+
+    /**
+     * @param config    the config to manage
+     * @param name      name of the config, unique within the JVM
+     * @return the registered object name
+     * @throws ConfigException if registration failed
+     */
+    public static ObjectName register(final Config config, final String name) {
+        try {
+            final ObjectName objectName = new ObjectName(DOMAIN + ":type=Config,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new ConfigManagement(config), objectName);
+            return objectName;
+        }
+        catch (final JMException e) {
+            throw new ConfigException("Error registering config MBean: " + name, e);
+        }
+    }
+
+    /**
+     * @param objectName    object name returned by {@link #register(Config, String)}
+     * @throws ConfigException if unregistration failed
+     */
+    public static void unregister(final ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        }
+        catch (final JMException e) {
+            throw new ConfigException("Error unregistering config MBean: " + objectName, e);
+        }
+    }
+
+    @Override
+    public int getKeyCount() {
+        return config.getStats().getKeyCount();
+    }
+
+    @Override
+    public Date getLastLoadTime() {
+        final long lastLoadTime = config.getStats().getLastLoadTime();
+        return lastLoadTime == 0 ? null : new Date(lastLoadTime);
+    }
+
+    @Override
+    public long getLastLoadDurationMillis() {
+        return config.getStats().getLastLoadDurationMillis();
+    }
+
+    @Override
+    public long getLoadCount() {
+        return config.getStats().getLoadCount();
+    }
+
+    @Override
+    public long getLoadFailureCount() {
+        return config.getStats().getLoadFailureCount();
+    }
+
+    @Override
+    public List<ConfigLocationStats> getLocations() {
+        return config.getStats().getLocations();
+    }
+
+    @Override
+    public long getLookupHitCount() {
+        return config.getLookupHitCount();
+    }
+
+    @Override
+    public long getLookupMissCount() {
+        return config.getLookupMissCount();
+    }
+
+    @Override
+    public double getLookupHitRate() {
+        final long hits = config.getLookupHitCount();
+        final long lookups = hits + config.getLookupMissCount();
+        return lookups == 0 ? Double.NaN : (double)hits / lookups;
+    }
+
+    @Override
+    public void reload() {
+        config.load();
+    }
+
+    @Override
+    public void reloadLocation(final String location) {
+        config.reloadLocation(location);
+    }
+
+    @Override
+    public String dumpRedacted() {
+        return config.dumpRedacted();
+    }
+
+}
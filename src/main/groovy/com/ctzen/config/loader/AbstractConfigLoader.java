@@ -11,7 +11,11 @@ import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Stream;
@@ -113,6 +117,32 @@ public abstract class AbstractConfigLoader implements ConfigLoader {
         }
     }
 
+    /**
+     * Content hash of a resource, for {@link #fingerprint(String, List)} implementations.
+     *
+     * @param location  resource location
+     * @return SHA-256 of the resource content, {@code "-"} if the resource is missing or not readable
+     */
+    protected String contentHash(final String location) {
+        needResourceLoader();
+        final Resource resource = resourceLoader.getResource(location);
+        if (!resource.exists() || !resource.isReadable()) {
+            return "-";
+        }
+        try (InputStream in = resource.getInputStream()) {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, n);
+            }
+            return Base64.getEncoder().encodeToString(digest.digest());
+        }
+        catch (final IOException | NoSuchAlgorithmException e) {
+            throw new ConfigException("Error hashing resource: " + resource, e);
+        }
+    }
+
     /**
      * For concrete classes that needs {@link ConfigSlurper}.
      *
@@ -0,0 +1,143 @@
+package com.ctzen.config.loader;
+
+import com.ctzen.config.exception.ConfigException;
+import groovy.util.ConfigObject;
+import org.springframework.context.ResourceLoaderAware;
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Loads data files by suffix, stream parsed straight into flattened dotted keys of a {@link FlatConfigObject}.
+ * <p>
+ * Profiles are handled as {@link PropertiesLoader} does, by appending {@code "@<profile name>"} to the base name.
+ * e.g. if profiles is set to {@code "prod"}, the files loaded are (in the order):
+ * </p>
+ * <ol>
+ * <li>{@code config/my-config.json}</li>
+ * <li>{@code config/my-config@prod.json}</li>
+ * </ol>
+ *
+ * @author cchang
+ */
+public abstract class AbstractStreamingLoader extends AbstractConfigLoader implements ResourceLoaderAware {
+
+    private static final String LOCATION_PROFILE_SEP = "@";
+
+    /**
+     * @param suffixes  resource location string suffixes handled
+     */
+    protected AbstractStreamingLoader(final String... suffixes) {
+        this.suffixes = suffixes;
+    }
+
+    private final String[] suffixes;
+
+    /**
+     * @param location  resource location string
+     * @return {@code true} if {@code location} ends with one of the suffixes
+     */
+    @Override
+    public boolean handles(final String location) {
+        return suffix(location) != null;
+    }
+
+    private String suffix(final String location) {
+        for (final String suffix : suffixes) {
+            if (location.endsWith(suffix)) {
+                return suffix;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<ConfigObject> load(final String location, final List<String> profiles) {
+        final List<ConfigObject> configObjects = new LinkedList<>();
+        final ConfigObject baseConfigObject = loadFile(location);
+        if (baseConfigObject != null) {
+            configObjects.add(baseConfigObject);
+        }
+        profiles.stream()
+                .map(profile -> loadFile(profileLocation(location, profile)))
+                .filter(Objects::nonNull)
+                .forEach(configObjects::add);
+        return configObjects;
+    }
+
+    /**
+     * @return content hashes of the base and the profile files
+     */
+    @Override
+    public String fingerprint(final String location, final List<String> profiles) {
+        final StringBuilder fingerprint = new StringBuilder(contentHash(location));
+        profiles.forEach(profile -> fingerprint.append(',').append(contentHash(profileLocation(location, profile))));
+        return fingerprint.toString();
+    }
+
+    private String profileLocation(final String location, final String profile) {
+        final String suffix = suffix(location);
+        return location.substring(0, location.length() - suffix.length()) + LOCATION_PROFILE_SEP + profile + suffix;
+    }
+
+    private ConfigObject loadFile(final String location) {
+        logLoading(location);
+        final Resource resource = getResource(location);
+        if (resource == null) {
+            return null;
+        }
+        final ConfigObject configObject = new FlatConfigObject();
+        try (Reader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(),
+                                                                      StandardCharsets.UTF_8))) {
+            parse(reader, configObject);
+        }
+        catch (final IOException e) {
+            throw new ConfigException("Error reading: " + location, e);
+        }
+        catch (final ConfigException e) {
+            throw new ConfigException("Error parsing " + location + ": " + e.getMessage(), e);
+        }
+        return configObject;
+    }
+
+    /**
+     * Parses a file, putting each leaf value with its dotted key.
+     *
+     * @param reader        buffered file content
+     * @param configObject  flat, dotted keys to values
+     * @throws ConfigException on a syntax error
+     */
+    protected abstract void parse(Reader reader, ConfigObject configObject) throws IOException;
+
+    /**
+     * Numbers typed as in config scripts: {@link Integer}, {@link Long} or {@link BigInteger} for integers,
+     * {@link BigDecimal} for decimals.
+     *
+     * @param text  number literal
+     * @return the number
+     * @throws NumberFormatException if not a number
+     */
+    protected static Number number(final String text) {
+        if (text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0) {
+            final BigInteger value = new BigInteger(text.startsWith("+") ? text.substring(1) : text);
+            if (value.bitLength() < Integer.SIZE) {
+                return value.intValue();
+            }
+            if (value.bitLength() < Long.SIZE) {
+                return value.longValue();
+            }
+            return value;
+        }
+        return new BigDecimal(text);
+    }
+
+}
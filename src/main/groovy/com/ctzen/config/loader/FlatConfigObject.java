@@ -0,0 +1,19 @@
+package com.ctzen.config.loader;
+
+import groovy.util.ConfigObject;
+
+/**
+ * Config object of flattened dotted keys, as {@link AbstractStreamingLoader}s parse them.
+ * <p>
+ * Each dot of a key is a config block, e.g. {@code db.pool.size} is a leaf of blocks {@code db} and
+ * {@code db.pool}, so a later {@code db} value replaces it as it would replace a nested block.
+ * Dotted keys of other config objects, e.g. of properties files, are single keys.
+ * </p>
+ *
+ * @author cchang
+ */
+public final class FlatConfigObject extends ConfigObject {
+
+    private static final long serialVersionUID = 1L;
+
+}
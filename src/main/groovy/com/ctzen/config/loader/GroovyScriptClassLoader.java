@@ -4,6 +4,7 @@ import groovy.util.ConfigObject;
 import org.springframework.context.ResourceLoaderAware;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -11,6 +12,10 @@ import java.util.stream.Collectors;
  * <p>
  * e.g. {@code class:org.acme.MyConfig}
  * </p>
+ * <p>
+ * Classes are compiled by the application build, {@link ScriptCompilerOptions} budgets apply only to classes compiled
+ * with {@link ScriptCompilerOptions#createCompilerConfiguration()}.
+ * </p>
  *
  * @author cchang
  */
@@ -21,6 +26,19 @@ public class GroovyScriptClassLoader extends AbstractConfigLoader implements Res
      */
     public static final String LOCATION_PREFIX = "class:";
 
+    public GroovyScriptClassLoader() {
+        this(new ScriptCompilerOptions());
+    }
+
+    /**
+     * @param compilerOptions   compiler options the script classes were compiled with
+     */
+    public GroovyScriptClassLoader(final ScriptCompilerOptions compilerOptions) {
+        this.compilerOptions = compilerOptions;
+    }
+
+    private final ScriptCompilerOptions compilerOptions;
+
     /**
      * @param location  resource location string
      * @return {@code true} if {@code location} starts with {@link #LOCATION_PREFIX}
@@ -30,12 +48,33 @@ public class GroovyScriptClassLoader extends AbstractConfigLoader implements Res
         return location.startsWith(LOCATION_PREFIX);
     }
 
+    private static final AtomicLong CLASS_IDS = new AtomicLong();
+
+    /**
+     * Unique per class, also of the same name in another class loader, and dropped with the class.
+     */
+    private static final ClassValue<String> CLASS_ID = new ClassValue<String>() {
+        @Override
+        protected String computeValue(final Class<?> type) {
+            return type.getName() + '#' + CLASS_IDS.incrementAndGet();
+        }
+    };
+
+    /**
+     * @return the identity of the loaded script class, a class never changes
+     */
+    @Override
+    public String fingerprint(final String location, final List<String> profiles) {
+        final Class<?> scriptClass = loadClass(location.substring(LOCATION_PREFIX.length()));
+        return scriptClass == null ? "-" : CLASS_ID.get(scriptClass) + ',' + compilerOptions.fingerprint();
+    }
+
     @Override
     public List<ConfigObject> load(final String location, final List<String> profiles) {
         logLoading(location);
         final Class<?> scriptClass = loadClass(location.substring(LOCATION_PREFIX.length()));
         return scriptClass == null ? NO_CONFIG
-                                   : slurpers(profiles).map(slurper -> slurper.parse(scriptClass))
+                                   : slurpers(profiles).map(slurper -> compilerOptions.run(() -> slurper.parse(scriptClass)))
                                                        .collect(Collectors.toList());
     }
 
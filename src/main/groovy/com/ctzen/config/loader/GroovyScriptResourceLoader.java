@@ -1,8 +1,15 @@
 package com.ctzen.config.loader;
 
+import com.ctzen.config.exception.ConfigException;
+import groovy.lang.Binding;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.Script;
 import groovy.util.ConfigObject;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.codehaus.groovy.runtime.ResourceGroovyMethods;
 import org.springframework.context.ResourceLoaderAware;
 
+import java.io.IOException;
 import java.net.URL;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -12,11 +19,27 @@ import java.util.stream.Collectors;
  * <p>
  * e.g. {@code classpath:org/acme/my-config.gy}
  * </p>
+ * <p>
+ * The script is compiled once, and run once per profile.
+ * </p>
 
  * @author cchang
  */
 public class GroovyScriptResourceLoader extends AbstractConfigLoader implements ResourceLoaderAware {
 
+    public GroovyScriptResourceLoader() {
+        this(new ScriptCompilerOptions());
+    }
+
+    /**
+     * @param compilerOptions   compiler options for the scripts
+     */
+    public GroovyScriptResourceLoader(final ScriptCompilerOptions compilerOptions) {
+        this.compilerOptions = compilerOptions;
+    }
+
+    private final ScriptCompilerOptions compilerOptions;
+
     /**
      * @param location  resource location string
      * @return true (this is the catch-all loader)
@@ -30,9 +53,33 @@ public class GroovyScriptResourceLoader extends AbstractConfigLoader implements
     public List<ConfigObject> load(final String location, final List<String> profiles) {
         logLoading(location);
         final URL url = getResourceURL(location);
-        return url == null ? NO_CONFIG
-                           : slurpers(profiles).map(slurper -> slurper.parse(url))
-                                               .collect(Collectors.toList());
+        if (url == null) {
+            return NO_CONFIG;
+        }
+        final Class<?> scriptClass = compile(url);
+        return slurpers(profiles).map(slurper -> compilerOptions.run(() -> {
+                                     final Script script = InvokerHelper.createScript(scriptClass, new Binding());
+                                     return slurper.parse(script, url);
+                                 }))
+                                 .collect(Collectors.toList());
+    }
+
+    /**
+     * @return content hash of the script and the compiler options
+     */
+    @Override
+    public String fingerprint(final String location, final List<String> profiles) {
+        return contentHash(location) + ',' + compilerOptions.fingerprint();
+    }
+
+    private Class<?> compile(final URL url) {
+        try (GroovyClassLoader classLoader = new GroovyClassLoader(getResourceLoader().getClassLoader(),
+                                                                   compilerOptions.createCompilerConfiguration())) {
+            return classLoader.parseClass(ResourceGroovyMethods.getText(url));
+        }
+        catch (final IOException e) {
+            throw new ConfigException("Error reading script: " + url, e);
+        }
     }
 
 }
@@ -0,0 +1,307 @@
+package com.ctzen.config.loader;
+
+import com.ctzen.config.exception.ConfigException;
+import groovy.util.ConfigObject;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Handles {@code ".json"} suffix, loads from a JSON file.
+ * <p>
+ * e.g. {@code classpath:config/my-config.json}
+ * </p>
+ * <p>
+ * The top level must be an object. Nested objects are flattened to dotted keys as they are read, without building
+ * the object tree, e.g. {@code {"db": {"pool": {"size": 10}}}} is key {@code db.pool.size}.
+ * An array is a {@link List} value, of values, lists and maps.
+ * Numbers are typed as in config scripts, see {@link #number(String)}.
+ * </p>
+ * <p>
+ * Profiles, e.g. {@code config/my-config@prod.json}, see {@link AbstractStreamingLoader}.
+ * </p>
+ *
+ * @author cchang
+ */
+public class JsonLoader extends AbstractStreamingLoader {
+
+    /**
+     * Resource location string suffix for JSON files.
+     */
+    public static final String LOCATION_SUFFIX = ".json";
+
+    public JsonLoader() {
+        super(LOCATION_SUFFIX);
+    }
+
+    @Override
+    protected void parse(final Reader reader, final ConfigObject configObject) throws IOException {
+        new Parser(reader, configObject).parse();
+    }
+
+    /**
+     * One token of look ahead, keys built in one reused buffer. Not thread-safe.
+     */
+    private static final class Parser {
+
+        Parser(final Reader reader, final ConfigObject configObject) {
+            this.reader = reader;
+            this.configObject = configObject;
+        }
+
+        private final Reader reader;
+
+        private final ConfigObject configObject;
+
+        private final StringBuilder path = new StringBuilder(128);
+
+        private final StringBuilder text = new StringBuilder(64);
+
+        private int c = -2;     // current char, -2 before the first read
+
+        private int line = 1;
+
+        private int column;
+
+        void parse() throws IOException {
+            skipWhitespace();
+            if (c != '{') {
+                throw error("Expecting an object");
+            }
+            flattenObject();
+            skipWhitespace();
+            if (c != -1) {
+                throw error("Unexpected content after the object");
+            }
+        }
+
+        /**
+         * At '{', flattens the members under {@link #path}.
+         */
+        private void flattenObject() throws IOException {
+            final int length = path.length();
+            read();
+            skipWhitespace();
+            if (c == '}') {
+                read();
+                return;
+            }
+            while (true) {
+                if (c != '"') {
+                    throw error("Expecting a member name");
+                }
+                if (length > 0) {
+                    path.append('.');
+                }
+                path.append(readString());
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                if (c == '{') {
+                    flattenObject();
+                }
+                else {
+                    configObject.put(path.toString(), readValue());
+                }
+                path.setLength(length);
+                if (endOfMembers('}')) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return {@code true} at the {@code end} char, which is consumed, false after a ','
+         */
+        private boolean endOfMembers(final char end) throws IOException {
+            skipWhitespace();
+            if (c == end) {
+                read();
+                return true;
+            }
+            expect(',');
+            skipWhitespace();
+            return false;
+        }
+
+        /**
+         * Values in arrays, objects in arrays are maps.
+         */
+        private Object readValue() throws IOException {
+            switch (c) {
+                case '"':
+                    return readString();
+                case '[':
+                    return readArray();
+                case '{':
+                    return readObject();
+                case 't':
+                    readLiteral("true");
+                    return Boolean.TRUE;
+                case 'f':
+                    readLiteral("false");
+                    return Boolean.FALSE;
+                case 'n':
+                    readLiteral("null");
+                    return null;
+                default:
+                    if (c == '-' || (c >= '0' && c <= '9')) {
+                        return readNumber();
+                    }
+                    throw error("Unexpected " + describe(c));
+            }
+        }
+
+        private List<Object> readArray() throws IOException {
+            final List<Object> list = new ArrayList<>();
+            read();
+            skipWhitespace();
+            if (c == ']') {
+                read();
+                return list;
+            }
+            do {
+                list.add(readValue());
+            } while (!endOfMembers(']'));
+            return list;
+        }
+
+        private Map<String, Object> readObject() throws IOException {
+            final Map<String, Object> map = new LinkedHashMap<>();
+            read();
+            skipWhitespace();
+            if (c == '}') {
+                read();
+                return map;
+            }
+            do {
+                if (c != '"') {
+                    throw error("Expecting a member name");
+                }
+                final String name = readString();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                map.put(name, readValue());
+            } while (!endOfMembers('}'));
+            return map;
+        }
+
+        private String readString() throws IOException {
+            text.setLength(0);
+            read();
+            while (c != '"') {
+                if (c == -1 || c < 0x20) {
+                    throw error("Unterminated string");
+                }
+                if (c == '\\') {
+                    read();
+                    switch (c) {
+                        case '"':
+                        case '\\':
+                        case '/':
+                            text.append((char)c);
+                            break;
+                        case 'b':
+                            text.append('\b');
+                            break;
+                        case 'f':
+                            text.append('\f');
+                            break;
+                        case 'n':
+                            text.append('\n');
+                            break;
+                        case 'r':
+                            text.append('\r');
+                            break;
+                        case 't':
+                            text.append('\t');
+                            break;
+                        case 'u':
+                            int code = 0;
+                            for (int i = 0; i < 4; i++) {
+                                read();
+                                final int digit = Character.digit(c, 16);
+                                if (digit < 0) {
+                                    throw error("Bad unicode escape");
+                                }
+                                code = (code << 4) | digit;
+                            }
+                            text.append((char)code);
+                            break;
+                        default:
+                            throw error("Bad escape " + describe(c));
+                    }
+                }
+                else {
+                    text.append((char)c);
+                }
+                read();
+            }
+            read();
+            return text.toString();
+        }
+
+        private Number readNumber() throws IOException {
+            text.setLength(0);
+            while (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9')) {
+                text.append((char)c);
+                read();
+            }
+            try {
+                return number(text.toString());
+            }
+            catch (final NumberFormatException e) {
+                throw error("Bad number " + text);
+            }
+        }
+
+        private void readLiteral(final String literal) throws IOException {
+            for (int i = 0; i < literal.length(); i++) {
+                if (c != literal.charAt(i)) {
+                    throw error("Expecting " + literal);
+                }
+                read();
+            }
+        }
+
+        private void expect(final char expected) throws IOException {
+            if (c != expected) {
+                throw error("Expecting '" + expected + "' but got " + describe(c));
+            }
+            read();
+        }
+
+        private void skipWhitespace() throws IOException {
+            if (c == -2) {
+                read();
+            }
+            while (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                read();
+            }
+        }
+
+        private void read() throws IOException {
+            if (c == '\n') {
+                line++;
+                column = 0;
+            }
+            c = reader.read();
+            column++;
+        }
+
+        private static String describe(final int c) {
+            return c == -1 ? "end of file" : "'" + (char)c + "'";
+        }
+
+        private ConfigException error(final String message) {
+            return new ConfigException(message + " at line " + line + " column " + column);
+        }
+
+    }
+
+}
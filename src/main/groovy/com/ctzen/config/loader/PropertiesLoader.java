@@ -60,6 +60,18 @@ public class PropertiesLoader extends AbstractConfigLoader implements ResourceLo
         return configObjects;
     }
 
+    /**
+     * @return content hashes of the base and the profile properties files
+     */
+    @Override
+    public String fingerprint(final String location, final List<String> profiles) {
+        final String baseLocation = location.substring(0, location.length() - LOCATION_SUFFIX.length());
+        final StringBuilder fingerprint = new StringBuilder(contentHash(location));
+        profiles.forEach(profile -> fingerprint.append(',').append(
+                contentHash(baseLocation + LOCATION_PROFILE_SEP + profile + LOCATION_SUFFIX)));
+        return fingerprint.toString();
+    }
+
     private ConfigObject loadProperties(final String location) {
         logLoading(location);
         final Resource resource = getResource(location);
@@ -0,0 +1,80 @@
+package com.ctzen.config.loader;
+
+import com.ctzen.config.exception.ConfigException;
+
+import java.util.function.Supplier;
+
+/**
+ * Execution budget of a config script run, enforced by checks compiled into the script
+ * by {@link ScriptCompilerOptions}.
+ * <p>
+ * Checks outside of {@link #run(long, long, Supplier)}, e.g. by {@link com.ctzen.config.Lazy} values evaluated
+ * after loading, are no-op.
+ * </p>
+ *
+ * @author cchang
+ */
+public final class ScriptBudget {
+
+    private static final ThreadLocal<ScriptBudget> CURRENT = new ThreadLocal<>();
+
+    private final long maxIterations;
+
+    private final long deadline;
+
+    private long iterations;
+
+    private ScriptBudget(final long maxIterations, final long timeoutMillis) {
+        this.maxIterations = maxIterations;
+        this.deadline = timeoutMillis > 0 ? System.nanoTime() + timeoutMillis * 1_000_000L : 0;
+    }
+
+    /**
+     * Runs a config script within a budget.
+     *
+     * @param maxIterations     max loop iterations, method and closure calls, 0 for unlimited
+     * @param timeoutMillis     max execution time in milliseconds, 0 for unlimited
+     * @param run               runs the script
+     * @param <T>               result type
+     * @return result of {@code run}
+     * @throws ConfigException if the budget is exceeded
+     */
+    public static <T> T run(final long maxIterations, final long timeoutMillis, final Supplier<T> run) {
+        final ScriptBudget outer = CURRENT.get();
+        CURRENT.set(new ScriptBudget(maxIterations, timeoutMillis));
+        try {
+            return run.get();
+        }
+        finally {
+            if (outer == null) {
+                CURRENT.remove();
+            }
+            else {
+                CURRENT.set(outer);
+            }
+        }
+    }
+
+    /**
+     * Called by instrumented config scripts at each loop iteration, method and closure call.
+     *
+     * @throws ConfigException if the budget is exceeded
+     */
+    public static void check() {
+        final ScriptBudget budget = CURRENT.get();
+        if (budget != null) {
+            budget.charge();
+        }
+    }
+
+    private void charge() {
+        ++iterations;
+        if (maxIterations > 0 && iterations > maxIterations) {
+            throw new ConfigException("Config script exceeded " + maxIterations + " iterations");
+        }
+        if (deadline != 0 && (iterations & 0xff) == 0 && System.nanoTime() - deadline > 0) {
+            throw new ConfigException("Config script timed out");
+        }
+    }
+
+}
@@ -0,0 +1,333 @@
+package com.ctzen.config.loader;
+
+import groovy.lang.Script;
+import groovy.transform.CompileStatic;
+import org.codehaus.groovy.ast.AnnotationNode;
+import org.codehaus.groovy.ast.ClassCodeVisitorSupport;
+import org.codehaus.groovy.ast.ClassHelper;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.VariableScope;
+import org.codehaus.groovy.ast.expr.ArgumentListExpression;
+import org.codehaus.groovy.ast.expr.ClosureExpression;
+import org.codehaus.groovy.ast.expr.StaticMethodCallExpression;
+import org.codehaus.groovy.ast.stmt.BlockStatement;
+import org.codehaus.groovy.ast.stmt.DoWhileStatement;
+import org.codehaus.groovy.ast.stmt.ExpressionStatement;
+import org.codehaus.groovy.ast.stmt.ForStatement;
+import org.codehaus.groovy.ast.stmt.Statement;
+import org.codehaus.groovy.ast.stmt.WhileStatement;
+import org.codehaus.groovy.classgen.GeneratorContext;
+import org.codehaus.groovy.control.CompilePhase;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.groovy.control.customizers.CompilationCustomizer;
+import org.codehaus.groovy.control.customizers.SecureASTCustomizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Opt-in compiler options for config scripts loaded by {@link GroovyScriptResourceLoader}.
+ * <p>
+ * e.g.
+ * </p>
+ * <pre>{@code
+ * ScriptCompilerOptions options = new ScriptCompilerOptions();
+ * options.setCompileStaticMethods(true);
+ * options.setAllowedImports(Arrays.asList("java.time.Duration"));
+ * options.setMaxIterations(1_000_000);
+ * options.setTimeoutMillis(5_000);
+ * config.addLoaders(new GroovyScriptResourceLoader(options));
+ * }</pre>
+ * <p>
+ * {@link GroovyScriptClassLoader} loads already compiled classes, only the budget
+ * ({@link #setMaxIterations(long)} and {@link #setTimeoutMillis(long)}) applies, and only if the classes were compiled
+ * with {@link #createCompilerConfiguration()}.
+ * </p>
+ *
+ * @author cchang
+ */
+public class ScriptCompilerOptions {
+
+    private boolean compileStaticMethods;
+
+    /**
+     * @return {@code true} if methods and classes declared in config scripts are statically compiled
+     */
+    public boolean isCompileStaticMethods() {
+        return compileStaticMethods;
+    }
+
+    /**
+     * Statically compile ({@link CompileStatic}) methods and classes declared in config scripts.
+     * <p>
+     * The script body itself stays dynamic as {@link groovy.util.ConfigSlurper} requires it.
+     * Methods must not refer to config values set by the script.
+     * </p>
+     *
+     * @param compileStaticMethods  {@code true} to statically compile
+     */
+    public void setCompileStaticMethods(final boolean compileStaticMethods) {
+        this.compileStaticMethods = compileStaticMethods;
+    }
+
+    private List<String> allowedImports;
+
+    /**
+     * @return allowed imports, or null if unrestricted
+     */
+    public List<String> getAllowedImports() {
+        return allowedImports;
+    }
+
+    /**
+     * Restrict the classes config scripts may import.
+     * <p>
+     * Only import statements are checked, use {@link #setAllowedReceivers(List)} to restrict what scripts may call.
+     * </p>
+     *
+     * @param allowedImports    fully qualified class names, null for unrestricted
+     */
+    public void setAllowedImports(final List<String> allowedImports) {
+        this.allowedImports = allowedImports;
+    }
+
+    private List<String> allowedStarImports;
+
+    /**
+     * @return allowed star imports, or null if unrestricted
+     */
+    public List<String> getAllowedStarImports() {
+        return allowedStarImports;
+    }
+
+    /**
+     * Restrict the packages config scripts may star import.
+     *
+     * @param allowedStarImports    package names ending with {@code ".*"}, e.g. {@code "java.time.*"},
+     *                              null for unrestricted
+     */
+    public void setAllowedStarImports(final List<String> allowedStarImports) {
+        this.allowedStarImports = allowedStarImports;
+    }
+
+    private List<Class<?>> allowedReceivers;
+
+    /**
+     * @return allowed method call receivers, or null if unrestricted
+     */
+    public List<Class<?>> getAllowedReceivers() {
+        return allowedReceivers;
+    }
+
+    /**
+     * Restrict the (statically known) types config scripts may call methods on.
+     * <p>
+     * Dynamic calls have {@link Object} as receiver type, and calls such as {@code environments { ... }}
+     * have the script as receiver, so {@link Object} and {@link Script} usually need to be allowed.
+     * </p>
+     *
+     * @param allowedReceivers  receiver types, null for unrestricted
+     */
+    public void setAllowedReceivers(final List<Class<?>> allowedReceivers) {
+        this.allowedReceivers = allowedReceivers;
+    }
+
+    private long maxIterations;
+
+    /**
+     * @return max loop iterations, method and closure calls per script run, 0 for unlimited
+     */
+    public long getMaxIterations() {
+        return maxIterations;
+    }
+
+    /**
+     * Fails a script run after so many loop iterations, method and closure calls.
+     *
+     * @param maxIterations     max loop iterations, method and closure calls per script run, 0 for unlimited
+     */
+    public void setMaxIterations(final long maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    private long timeoutMillis;
+
+    /**
+     * @return max execution time per script run in milliseconds, 0 for unlimited
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Fails a script run taking longer than this.
+     * <p>
+     * Checked at loop iterations, method and closure calls, it cannot interrupt a single blocking call.
+     * </p>
+     *
+     * @param timeoutMillis     max execution time per script run in milliseconds, 0 for unlimited
+     */
+    public void setTimeoutMillis(final long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @return the options as a string, equal for options compiling and running scripts the same way
+     */
+    String fingerprint() {
+        return compileStaticMethods + "," + allowedImports + "," + allowedStarImports + "," + allowedReceivers
+             + "," + maxIterations + "," + timeoutMillis;
+    }
+
+    private boolean isBudgeted() {
+        return maxIterations > 0 || timeoutMillis > 0;
+    }
+
+    /**
+     * Runs a config script within the budget.
+     */
+    <T> T run(final Supplier<T> run) {
+        return isBudgeted() ? ScriptBudget.run(maxIterations, timeoutMillis, run) : run.get();
+    }
+
+    /**
+     * @return compiler configuration for config scripts
+     */
+    public CompilerConfiguration createCompilerConfiguration() {
+        final CompilerConfiguration compilerConfiguration = new CompilerConfiguration();
+        if (compileStaticMethods) {
+            compilerConfiguration.addCompilationCustomizers(new CompileStaticMethodsCustomizer());
+        }
+        if (isBudgeted()) {
+            compilerConfiguration.addCompilationCustomizers(new ScriptBudgetCustomizer());
+        }
+        if (allowedImports != null || allowedStarImports != null || allowedReceivers != null) {
+            compilerConfiguration.addCompilationCustomizers(createSecureASTCustomizer());
+        }
+        return compilerConfiguration;
+    }
+
+    private SecureASTCustomizer createSecureASTCustomizer() {
+        final SecureASTCustomizer customizer = new SecureASTCustomizer();
+        if (allowedImports != null || allowedStarImports != null) {
+            customizer.setImportsWhitelist(allowedImports == null ? Collections.emptyList() : allowedImports);
+            customizer.setStarImportsWhitelist(allowedStarImports == null ? Collections.emptyList() : allowedStarImports);
+        }
+        if (allowedReceivers != null) {
+            final List<String> receivers = new ArrayList<>();
+            allowedReceivers.forEach(receiver -> receivers.add(receiver.getName()));
+            if (isBudgeted()) {
+                receivers.add(ScriptBudget.class.getName());
+            }
+            customizer.setReceiversWhiteList(receivers);
+        }
+        return customizer;
+    }
+
+    /**
+     * Annotates methods and classes declared in scripts with {@link CompileStatic}.
+     */
+    private static class CompileStaticMethodsCustomizer extends CompilationCustomizer {
+
+        private static final ClassNode COMPILE_STATIC = ClassHelper.make(CompileStatic.class);
+
+        CompileStaticMethodsCustomizer() {
+            super(CompilePhase.CONVERSION);
+        }
+
+        @Override
+        public void call(final SourceUnit source, final GeneratorContext context, final ClassNode classNode) {
+            if (classNode.isScript()) {
+                classNode.getMethods().stream()
+                        .filter(method -> !method.isSynthetic() && !isScriptMethod(method))
+                        .forEach(method -> method.addAnnotation(new AnnotationNode(COMPILE_STATIC)));
+            }
+            else {
+                classNode.addAnnotation(new AnnotationNode(COMPILE_STATIC));
+            }
+        }
+
+        private static boolean isScriptMethod(final MethodNode method) {
+            return "run".equals(method.getName()) || "main".equals(method.getName());
+        }
+
+    }
+
+    /**
+     * Inserts {@link ScriptBudget#check()} at the start of every loop body, method, and closure.
+     */
+    private static class ScriptBudgetCustomizer extends CompilationCustomizer {
+
+        private static final ClassNode SCRIPT_BUDGET = ClassHelper.make(ScriptBudget.class);
+
+        ScriptBudgetCustomizer() {
+            super(CompilePhase.CONVERSION);
+        }
+
+        @Override
+        public void call(final SourceUnit source, final GeneratorContext context, final ClassNode classNode) {
+            new ClassCodeVisitorSupport() {
+
+                @Override
+                protected SourceUnit getSourceUnit() {
+                    return source;
+                }
+
+                @Override
+                protected void visitConstructorOrMethod(final MethodNode node, final boolean isConstructor) {
+                    super.visitConstructorOrMethod(node, isConstructor);
+                    if (!isConstructor && node.getCode() != null && !node.isSynthetic()) {
+                        node.setCode(checked(node.getCode()));
+                    }
+                }
+
+                @Override
+                public void visitClosureExpression(final ClosureExpression expression) {
+                    super.visitClosureExpression(expression);
+                    expression.setCode(checked(expression.getCode()));
+                }
+
+                @Override
+                public void visitForLoop(final ForStatement statement) {
+                    super.visitForLoop(statement);
+                    statement.setLoopBlock(checked(statement.getLoopBlock()));
+                }
+
+                @Override
+                public void visitWhileLoop(final WhileStatement statement) {
+                    super.visitWhileLoop(statement);
+                    statement.setLoopBlock(checked(statement.getLoopBlock()));
+                }
+
+                @Override
+                public void visitDoWhileLoop(final DoWhileStatement statement) {
+                    super.visitDoWhileLoop(statement);
+                    statement.setLoopBlock(checked(statement.getLoopBlock()));
+                }
+
+            }.visitClass(classNode);
+        }
+
+        private static Statement checked(final Statement statement) {
+            final Statement check = new ExpressionStatement(
+                    new StaticMethodCallExpression(SCRIPT_BUDGET, "check", ArgumentListExpression.EMPTY_ARGUMENTS));
+            if (statement instanceof BlockStatement) {
+                ((BlockStatement)statement).getStatements().add(0, check);
+                return statement;
+            }
+            final BlockStatement block = new BlockStatement();
+            block.setVariableScope(new VariableScope());
+            block.addStatement(check);
+            if (statement != null) {
+                block.addStatement(statement);
+            }
+            return block;
+        }
+
+    }
+
+}
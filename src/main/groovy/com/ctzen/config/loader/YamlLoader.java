@@ -0,0 +1,726 @@
+package com.ctzen.config.loader;
+
+import com.ctzen.config.exception.ConfigException;
+import groovy.util.ConfigObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Handles {@code ".yaml"} and {@code ".yml"} suffixes, loads from a YAML file.
+ * <p>
+ * e.g. {@code classpath:config/my-config.yaml}
+ * </p>
+ * <p>
+ * Reads the block style YAML used for configuration, a line at a time, flattening nested mappings to dotted keys
+ * as they are read, without building the document tree, e.g.
+ * </p>
+ * <pre>
+ * db:
+ *   pool:
+ *     size: 10     # key db.pool.size
+ * </pre>
+ * <p>
+ * Supported are: one document, block mappings and sequences, plain, single and double quoted scalars,
+ * literal ({@code |}) and folded ({@code >}) block scalars, single line flow sequences and mappings, and comments.
+ * A sequence is a {@link List} value, of values, lists and maps.
+ * Plain scalars are typed by the YAML core schema: null, booleans, and numbers typed as in config scripts,
+ * see {@link #number(String)}.<br>
+ * Anchors, aliases, tags and multiple documents are not supported, and fail the load.
+ * </p>
+ * <p>
+ * Profiles, e.g. {@code config/my-config@prod.yaml}, see {@link AbstractStreamingLoader}.
+ * </p>
+ *
+ * @author cchang
+ */
+public class YamlLoader extends AbstractStreamingLoader {
+
+    /**
+     * Resource location string suffixes for YAML files.
+     */
+    public static final String LOCATION_SUFFIX = ".yaml";
+
+    public static final String SHORT_LOCATION_SUFFIX = ".yml";
+
+    public YamlLoader() {
+        super(LOCATION_SUFFIX, SHORT_LOCATION_SUFFIX);
+    }
+
+    @Override
+    protected void parse(final Reader reader, final ConfigObject configObject) throws IOException {
+        new Parser(reader instanceof BufferedReader ? (BufferedReader)reader : new BufferedReader(reader),
+                   configObject).parse();
+    }
+
+    private static final Pattern NULL = Pattern.compile("~|null|Null|NULL");
+
+    private static final Pattern BOOLEAN = Pattern.compile("true|True|TRUE|false|False|FALSE");
+
+    private static final Pattern INTEGER = Pattern.compile("[-+]?[0-9]+");
+
+    private static final Pattern HEX = Pattern.compile("0x[0-9a-fA-F]+");
+
+    private static final Pattern OCTAL = Pattern.compile("0o[0-7]+");
+
+    private static final Pattern DECIMAL = Pattern.compile("[-+]?(\\.[0-9]+|[0-9]+(\\.[0-9]*)?)([eE][-+]?[0-9]+)?");
+
+    private static final Pattern INFINITY = Pattern.compile("[-+]?\\.(inf|Inf|INF)");
+
+    private static final Pattern NAN = Pattern.compile("\\.(nan|NaN|NAN)");
+
+    /**
+     * Where parsed entries go: dotted keys of the config object, or a map in a sequence.
+     */
+    private abstract static class Target {
+
+        abstract void put(String key, Object value);
+
+        abstract Target child(String key);
+
+    }
+
+    /**
+     * Puts into the config object, with the block's key path in the parser's reused buffer.
+     */
+    private static final class Flat extends Target {
+
+        Flat(final Parser parser, final int mark) {
+            this.parser = parser;
+            this.mark = mark;
+        }
+
+        private final Parser parser;
+
+        /**
+         * Length of the key path of this block.
+         */
+        private final int mark;
+
+        private void append(final String key) {
+            parser.path.setLength(mark);
+            if (mark > 0) {
+                parser.path.append('.');
+            }
+            parser.path.append(key);
+        }
+
+        @Override
+        void put(final String key, final Object value) {
+            append(key);
+            parser.configObject.put(parser.path.toString(), value);
+            parser.path.setLength(mark);
+        }
+
+        @Override
+        Target child(final String key) {
+            append(key);
+            return new Flat(parser, parser.path.length());
+        }
+
+    }
+
+    private static final class Tree extends Target {
+
+        Tree(final Map<String, Object> map) {
+            this.map = map;
+        }
+
+        private final Map<String, Object> map;
+
+        @Override
+        void put(final String key, final Object value) {
+            map.put(key, value);
+        }
+
+        @Override
+        Target child(final String key) {
+            final Map<String, Object> child = new LinkedHashMap<>();
+            map.put(key, child);
+            return new Tree(child);
+        }
+
+    }
+
+    /**
+     * One line of look ahead. Not thread-safe.
+     */
+    private static final class Parser {
+
+        Parser(final BufferedReader reader, final ConfigObject configObject) {
+            this.reader = reader;
+            this.configObject = configObject;
+        }
+
+        private final BufferedReader reader;
+
+        private final ConfigObject configObject;
+
+        private final StringBuilder path = new StringBuilder(128);
+
+        private String pushedBack;
+
+        private int lineNumber;
+
+        private boolean started;
+
+        private boolean eof;
+
+        /**
+         * Indentation of the current line.
+         */
+        private int indent;
+
+        /**
+         * The current line, without the indentation and comments.
+         */
+        private String content;
+
+        void parse() throws IOException {
+            advance();
+            if (eof) {
+                return;
+            }
+            if (isSequenceItem(content)) {
+                throw error("Expecting a mapping at the top level");
+            }
+            final Flat root = new Flat(this, 0);
+            if (content.startsWith("{")) {
+                putFlow(root, null, new Flow(content).parse());
+                advance();
+            }
+            else {
+                parseMapping(indent, root);
+            }
+            if (!eof) {
+                throw error("Bad indentation");
+            }
+        }
+
+        private void parseMapping(final int mappingIndent, final Target target) throws IOException {
+            while (!eof && indent == mappingIndent) {
+                if (isSequenceItem(content)) {
+                    throw error("Expecting 'key: value'");
+                }
+                final int colon = findColon(content);
+                if (colon < 0) {
+                    throw error("Expecting 'key: value'");
+                }
+                final String key = key(content.substring(0, colon).trim());
+                final String rest = content.substring(colon + 1).trim();
+                if (rest.isEmpty()) {
+                    advance();
+                    if (!eof && indent > mappingIndent && !isSequenceItem(content)) {
+                        parseMapping(indent, target.child(key));
+                    }
+                    else if (!eof && indent >= mappingIndent && isSequenceItem(content)) {
+                        target.put(key, parseSequence(indent));
+                    }
+                    else {
+                        target.put(key, null);
+                    }
+                }
+                else if (rest.startsWith("{")) {
+                    putFlow(target, key, new Flow(rest).parse());
+                    advance();
+                }
+                else {
+                    target.put(key, value(rest, mappingIndent));
+                }
+            }
+            if (!eof && indent > mappingIndent) {
+                throw error("Bad indentation");
+            }
+        }
+
+        private List<Object> parseSequence(final int sequenceIndent) throws IOException {
+            final List<Object> list = new ArrayList<>();
+            while (!eof && indent == sequenceIndent && isSequenceItem(content)) {
+                int offset = 1;
+                while (offset < content.length() && content.charAt(offset) == ' ') {
+                    offset++;
+                }
+                final String item = content.substring(offset);
+                if (item.isEmpty()) {
+                    advance();
+                    if (!eof && indent > sequenceIndent) {
+                        list.add(isSequenceItem(content) ? parseSequence(indent) : parseMap(indent));
+                    }
+                    else {
+                        list.add(null);
+                    }
+                }
+                else if (isSequenceItem(item)) {
+                    indent += offset;
+                    content = item;
+                    list.add(parseSequence(indent));
+                }
+                else if (!item.startsWith("[") && !item.startsWith("{") && findColon(item) >= 0) {
+                    indent += offset;
+                    content = item;
+                    list.add(parseMap(indent));
+                }
+                else {
+                    list.add(value(item, sequenceIndent));
+                }
+            }
+            if (!eof && indent > sequenceIndent) {
+                throw error("Bad indentation");
+            }
+            return list;
+        }
+
+        private Map<String, Object> parseMap(final int mappingIndent) throws IOException {
+            final Map<String, Object> map = new LinkedHashMap<>();
+            parseMapping(mappingIndent, new Tree(map));
+            return map;
+        }
+
+        /**
+         * A value on the current line, or a block scalar starting on it. Advances past the value.
+         */
+        private Object value(final String text, final int parentIndent) throws IOException {
+            if (text.startsWith("|") || text.startsWith(">")) {
+                return blockScalar(text, parentIndent);
+            }
+            final Object value;
+            if (text.startsWith("[") || text.startsWith("{")) {
+                value = new Flow(text).parse();
+            }
+            else if (text.startsWith("&") || text.startsWith("*") || text.startsWith("!")) {
+                throw error("Anchors, aliases and tags are not supported");
+            }
+            else if (text.startsWith("\"") || text.startsWith("'")) {
+                final Flow flow = new Flow(text);
+                value = flow.quoted();
+                flow.end();
+            }
+            else {
+                value = plain(text);
+            }
+            advance();
+            return value;
+        }
+
+        private void putFlow(final Target target, final String key, final Object value) {
+            if (!(value instanceof Map)) {
+                target.put(key, value);
+                return;
+            }
+            final Target block = key == null ? target : target.child(key);
+            for (final Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+                putFlow(block, (String)entry.getKey(), entry.getValue());
+            }
+        }
+
+        /**
+         * Reads the raw lines of a block scalar, more indented than {@code parentIndent}.
+         */
+        private String blockScalar(final String header, final int parentIndent) throws IOException {
+            final boolean folded = header.charAt(0) == '>';
+            final String chomping = header.substring(1).trim();
+            if (!chomping.isEmpty() && !"-".equals(chomping) && !"+".equals(chomping)) {
+                throw error("Unsupported block scalar header: " + header);
+            }
+            final List<String> lines = new ArrayList<>();
+            int blockIndent = -1;
+            String raw;
+            while ((raw = readRawLine()) != null) {
+                final int lineIndent = indentation(raw);
+                if (lineIndent == raw.length()) {   // blank
+                    lines.add("");
+                    continue;
+                }
+                if (blockIndent < 0) {
+                    blockIndent = lineIndent;
+                }
+                if (lineIndent < blockIndent || lineIndent <= parentIndent) {
+                    pushedBack = raw;
+                    lineNumber--;
+                    break;
+                }
+                lines.add(raw.substring(blockIndent));
+            }
+            int end = lines.size();
+            while (end > 0 && lines.get(end - 1).isEmpty()) {
+                end--;
+            }
+            final StringBuilder value = new StringBuilder();
+            for (int i = 0; i < end; i++) {
+                final String line = lines.get(i);
+                if (i > 0) {
+                    final boolean foldable = folded && !line.isEmpty() && !lines.get(i - 1).isEmpty()
+                                             && line.charAt(0) != ' ';
+                    value.append(foldable ? ' ' : '\n');
+                }
+                value.append(line);
+            }
+            if ("+".equals(chomping)) {
+                for (int i = end; i <= lines.size() && end > 0; i++) {
+                    value.append('\n');
+                }
+            }
+            else if (!"-".equals(chomping) && end > 0) {
+                value.append('\n');
+            }
+            advance();
+            return value.toString();
+        }
+
+        /**
+         * Moves to the next line with content.
+         */
+        private void advance() throws IOException {
+            String raw;
+            while ((raw = readRawLine()) != null) {
+                final int lineIndent = indentation(raw);
+                if (lineIndent < raw.length() && raw.charAt(lineIndent) == '\t') {
+                    throw error("Tabs are not allowed in indentation");
+                }
+                final String text = stripComment(raw.substring(lineIndent));
+                if (text.isEmpty()) {
+                    continue;
+                }
+                if (lineIndent == 0 && (text.startsWith("%") && !started)) {
+                    continue;   // directive
+                }
+                if (lineIndent == 0 && ("---".equals(text) || text.startsWith("--- "))) {
+                    if (started) {
+                        throw error("Multiple documents are not supported");
+                    }
+                    started = true;
+                    if ("---".equals(text)) {
+                        continue;
+                    }
+                    throw error("Content on the document start line is not supported");
+                }
+                if (lineIndent == 0 && "...".equals(text)) {
+                    break;
+                }
+                started = true;
+                indent = lineIndent;
+                content = text;
+                return;
+            }
+            eof = true;
+            content = null;
+            indent = -1;
+        }
+
+        private String readRawLine() throws IOException {
+            final String raw;
+            if (pushedBack != null) {
+                raw = pushedBack;
+                pushedBack = null;
+            }
+            else {
+                raw = reader.readLine();
+            }
+            if (raw != null) {
+                lineNumber++;
+            }
+            return raw;
+        }
+
+        private String key(final String text) {
+            if (text.startsWith("\"") || text.startsWith("'")) {
+                final Flow flow = new Flow(text);
+                final String key = flow.quoted();
+                flow.end();
+                return key;
+            }
+            if (text.startsWith("? ") || text.startsWith("&") || text.startsWith("*") || text.startsWith("!")) {
+                throw error("Complex keys, anchors, aliases and tags are not supported");
+            }
+            return text;
+        }
+
+        private ConfigException error(final String message) {
+            return new ConfigException(message + " at line " + lineNumber);
+        }
+
+        /**
+         * Flow collections and quoted scalars, within one line.
+         */
+        private final class Flow {
+
+            Flow(final String text) {
+                this.text = text;
+            }
+
+            private final String text;
+
+            private int pos;
+
+            Object parse() {
+                final Object value = value();
+                end();
+                return value;
+            }
+
+            void end() {
+                skipSpaces();
+                if (pos < text.length()) {
+                    throw error("Unexpected '" + text.substring(pos) + "'");
+                }
+            }
+
+            private Object value() {
+                skipSpaces();
+                if (pos >= text.length()) {
+                    throw error("Unterminated flow collection");
+                }
+                final char c = text.charAt(pos);
+                if (c == '[') {
+                    final List<Object> list = new ArrayList<>();
+                    pos++;
+                    skipSpaces();
+                    if (peek(']')) {
+                        return list;
+                    }
+                    do {
+                        list.add(value());
+                    } while (!endOfItems(']'));
+                    return list;
+                }
+                if (c == '{') {
+                    final Map<String, Object> map = new LinkedHashMap<>();
+                    pos++;
+                    skipSpaces();
+                    if (peek('}')) {
+                        return map;
+                    }
+                    do {
+                        skipSpaces();
+                        final String key = text.charAt(pos) == '"' || text.charAt(pos) == '\'' ? quoted()
+                                                                                               : plainText(true);
+                        skipSpaces();
+                        if (!peek(':')) {
+                            throw error("Expecting ':' in flow mapping");
+                        }
+                        map.put(key, value());
+                    } while (!endOfItems('}'));
+                    return map;
+                }
+                if (c == '"' || c == '\'') {
+                    return quoted();
+                }
+                return plain(plainText(false));
+            }
+
+            private boolean endOfItems(final char end) {
+                skipSpaces();
+                if (peek(end)) {
+                    return true;
+                }
+                if (!peek(',')) {
+                    throw error("Expecting ',' or '" + end + "'");
+                }
+                return false;
+            }
+
+            private String plainText(final boolean key) {
+                final int start = pos;
+                while (pos < text.length()) {
+                    final char c = text.charAt(pos);
+                    if (c == ',' || c == ']' || c == '}' || (key && c == ':')) {
+                        break;
+                    }
+                    pos++;
+                }
+                return text.substring(start, pos).trim();
+            }
+
+            String quoted() {
+                final char quote = text.charAt(pos++);
+                final StringBuilder value = new StringBuilder();
+                while (true) {
+                    if (pos >= text.length()) {
+                        throw error("Unterminated quoted scalar");
+                    }
+                    final char c = text.charAt(pos++);
+                    if (c == quote) {
+                        if (quote == '\'' && pos < text.length() && text.charAt(pos) == '\'') {
+                            value.append('\'');
+                            pos++;
+                            continue;
+                        }
+                        return value.toString();
+                    }
+                    if (c == '\\' && quote == '"') {
+                        if (pos >= text.length()) {
+                            throw error("Unterminated quoted scalar");
+                        }
+                        final char escaped = text.charAt(pos++);
+                        switch (escaped) {
+                            case 'n':
+                                value.append('\n');
+                                break;
+                            case 't':
+                                value.append('\t');
+                                break;
+                            case 'r':
+                                value.append('\r');
+                                break;
+                            case '0':
+                                value.append('\0');
+                                break;
+                            case 'u':
+                                if (pos + 4 > text.length()) {
+                                    throw error("Bad unicode escape");
+                                }
+                                try {
+                                    value.append((char)Integer.parseInt(text.substring(pos, pos + 4), 16));
+                                }
+                                catch (final NumberFormatException e) {
+                                    throw error("Bad unicode escape");
+                                }
+                                pos += 4;
+                                break;
+                            case '"':
+                            case '\\':
+                            case '/':
+                            case ' ':
+                                value.append(escaped);
+                                break;
+                            default:
+                                throw error("Bad escape '\\" + escaped + "'");
+                        }
+                    }
+                    else {
+                        value.append(c);
+                    }
+                }
+            }
+
+            private boolean peek(final char c) {
+                if (pos < text.length() && text.charAt(pos) == c) {
+                    pos++;
+                    return true;
+                }
+                return false;
+            }
+
+            private void skipSpaces() {
+                while (pos < text.length() && text.charAt(pos) == ' ') {
+                    pos++;
+                }
+            }
+
+        }
+
+    }
+
+    private static boolean isSequenceItem(final String text) {
+        return text.equals("-") || text.startsWith("- ");
+    }
+
+    private static int indentation(final String line) {
+        int i = 0;
+        while (i < line.length() && line.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return index of the ':' ending a mapping key, outside quotes, -1 if none
+     */
+    private static int findColon(final String text) {
+        char quote = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (quote != 0) {
+                if (c == '\\' && quote == '"') {
+                    i++;
+                }
+                else if (c == '\'' && quote == '\'' && i + 1 < text.length() && text.charAt(i + 1) == '\'') {
+                    i++;    // '' in single quotes
+                }
+                else if (c == quote) {
+                    quote = 0;
+                }
+            }
+            else if ((c == '"' || c == '\'') && i == 0) {
+                quote = c;
+            }
+            else if (c == ':' && (i + 1 == text.length() || text.charAt(i + 1) == ' ')) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return {@code text} up to a {@code #} comment outside quotes, right trimmed
+     */
+    private static String stripComment(final String text) {
+        char quote = 0;
+        int end = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (quote != 0) {
+                if (c == '\\' && quote == '"') {
+                    i++;
+                }
+                else if (c == '\'' && quote == '\'' && i + 1 < text.length() && text.charAt(i + 1) == '\'') {
+                    i++;    // '' in single quotes
+                }
+                else if (c == quote) {
+                    quote = 0;
+                }
+            }
+            else if ((c == '"' || c == '\'') && (i == 0 || " [{,:-".indexOf(text.charAt(i - 1)) >= 0)) {
+                quote = c;
+            }
+            else if (c == '#' && (i == 0 || text.charAt(i - 1) == ' ' || text.charAt(i - 1) == '\t')) {
+                end = i;
+                break;
+            }
+        }
+        while (end > 0 && (text.charAt(end - 1) == ' ' || text.charAt(end - 1) == '\t')) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    /**
+     * Types a plain scalar by the YAML core schema.
+     */
+    private static Object plain(final String text) {
+        if (text.isEmpty() || NULL.matcher(text).matches()) {
+            return null;
+        }
+        if (BOOLEAN.matcher(text).matches()) {
+            return Boolean.valueOf(text.toLowerCase());
+        }
+        if (INTEGER.matcher(text).matches() || DECIMAL.matcher(text).matches()) {
+            return number(text);
+        }
+        if (HEX.matcher(text).matches()) {
+            return narrow(new BigInteger(text.substring(2), 16));
+        }
+        if (OCTAL.matcher(text).matches()) {
+            return narrow(new BigInteger(text.substring(2), 8));
+        }
+        if (INFINITY.matcher(text).matches()) {
+            return text.startsWith("-") ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        if (NAN.matcher(text).matches()) {
+            return Double.NaN;
+        }
+        return text;
+    }
+
+    private static Number narrow(final BigInteger value) {
+        return number(value.toString());
+    }
+
+}
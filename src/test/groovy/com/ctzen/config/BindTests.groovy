@@ -0,0 +1,201 @@
+package com.ctzen.config
+
+import groovy.transform.CompileStatic
+
+import java.beans.Introspector
+import java.beans.PropertyDescriptor
+import java.lang.reflect.Method
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.TimeUnit
+
+import org.testng.Reporter
+import org.testng.annotations.AfterMethod
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import com.ctzen.config.exception.ConfigException
+
+/**
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class BindTests {
+
+    private static final String SCRIPT = '''
+app.name = 'bound'
+app.size = '42'
+app.enabled = 'true'
+app.unit = 'SECONDS'
+app.tags = ['a', 'b']
+app.pool.size = 8
+app.pool.timeout = 1000
+app.unknown = 'ignored'
+bad.size = 'ten'
+big.size = 3000000000L
+fraction.size = 1.5
+'''
+
+    private Path path
+
+    private Config config
+
+    @BeforeMethod
+    void setup() {
+        path = Files.createTempFile('bind-tests-', '.gy')
+        Files.write(path, SCRIPT.bytes)
+        config = new Config()
+        config.setLocations("file:${path.toFile().canonicalPath}".toString())
+        config.setLogLoadedValues(false)
+        config.load()
+    }
+
+    @AfterMethod
+    void cleanup() {
+        Files.delete(path)
+    }
+
+    void bind() {
+        final TestPojo pojo = config.bind('app', TestPojo)
+        assert 'bound' == pojo.name
+        assert 42 == pojo.size
+        assert pojo.enabled
+        assert TimeUnit.SECONDS == pojo.unit
+        assert ['a', 'b'] == pojo.tags
+        assert 8 == pojo.pool.size
+        assert 1000L == pojo.pool.timeout
+    }
+
+    void bindExisting() {
+        final TestPojo pojo = new TestPojo(name: 'kept', size: 1)
+        config.bind('missing', pojo)
+        assert 'kept' == pojo.name
+        assert 1 == pojo.size
+        assert null == pojo.pool
+    }
+
+    void rebindChangedKeysOnly() {
+        final TestPojo pojo = config.bind('app', TestPojo)
+        final TestPojo.Pool pool = pojo.pool
+        pojo.name = 'local'
+        config.override('app.pool.size', 16)
+        config.override('app.size', 7)
+        config.rebind('app', pojo, ['app.pool.size', 'app.size', 'other.key'] as Set<String>)
+        assert 'local' == pojo.name       // not changed, not bound again
+        assert 7 == pojo.size
+        assert pool.is(pojo.pool)
+        assert 16 == pojo.pool.size
+    }
+
+    void rebindOnChange() {
+        final TestPojo pojo = config.bind('app', TestPojo)
+        config.addChangeListener({ Config c, Set<String> changedKeys -> c.rebind('app', pojo, changedKeys) }
+                                         as ConfigChangeListener)
+        config.override('app.unit', 'MINUTES')
+        assert TimeUnit.MINUTES == pojo.unit
+    }
+
+    @Test(expectedExceptions = ConfigException, expectedExceptionsMessageRegExp = ".*'bad.size'.*")
+    void badValue() {
+        config.bind('bad', TestPojo)
+    }
+
+    void notNarrowed() {
+        ['big', 'fraction'].each { String prefix ->
+            try {
+                config.bind(prefix, TestPojo)
+                assert false: prefix
+            }
+            catch (final ConfigException e) {
+                assert e.message.contains("'${prefix}.size'")
+                assert e.cause instanceof ArithmeticException
+            }
+        }
+    }
+
+    void notCountedAsLookups() {
+        config.setCountLookups(true)
+        config.bind('app', TestPojo)
+        assert 0 == config.lookupHitCount
+        assert 0 == config.lookupMissCount
+    }
+
+    /**
+     * {@code gradle benchmark}
+     */
+    @Test(groups = 'benchmark')
+    void benchmark() {
+        final int rounds = 20_000
+        long planNanos = 0
+        long cachedNanos = 0
+        long reflectionNanos = 0
+        (rounds * 2).times { int round ->
+            long start = System.nanoTime()
+            config.bind('app', TestPojo)
+            final long plan = System.nanoTime() - start
+            start = System.nanoTime()
+            reflectionBind('app', new TestPojo(), true)
+            final long cached = System.nanoTime() - start
+            start = System.nanoTime()
+            reflectionBind('app', new TestPojo(), false)
+            final long reflection = System.nanoTime() - start
+            if (round >= rounds) {  // the first half warms up
+                planNanos += plan
+                cachedNanos += cached
+                reflectionNanos += reflection
+            }
+        }
+        final String result = "bind TestPojo: binding plan ${(planNanos / rounds / 1000).round(2)}us, " +
+                              "cached descriptors ${(cachedNanos / rounds / 1000).round(2)}us, " +
+                              "reflection ${(reflectionNanos / rounds / 1000).round(2)}us"
+        Reporter.log(result)
+    }
+
+    private final Map<Class<?>, PropertyDescriptor[]> descriptors = [:]
+
+    /**
+     * Converts on every bind, calling setters by {@link Method#invoke}.
+     *
+     * @param cached    looks up the properties once per class, otherwise on every bind
+     */
+    private void reflectionBind(final String prefix, final Object bean, final boolean cached) {
+        final PropertyDescriptor[] beanDescriptors = cached
+                ? descriptors.computeIfAbsent(bean.getClass()) { Class<?> type ->
+                      Introspector.getBeanInfo(type, Object).propertyDescriptors }
+                : Introspector.getBeanInfo(bean.getClass(), Object).propertyDescriptors
+        for (final PropertyDescriptor descriptor : beanDescriptors) {
+            final Method setter = descriptor.writeMethod
+            if (setter == null || descriptor.propertyType == MetaClass) {
+                continue
+            }
+            final String key = "${prefix}.${descriptor.name}".toString()
+            if (config.containsKey(key)) {
+                setter.invoke(bean, convert(config.get(key), descriptor.propertyType))
+            }
+            else if (descriptor.propertyType == TestPojo.Pool) {
+                final Object nested = descriptor.propertyType.getDeclaredConstructor().newInstance()
+                reflectionBind(key, nested, cached)
+                setter.invoke(bean, nested)
+            }
+        }
+    }
+
+    private static Object convert(final Object value, final Class<?> type) {
+        switch (type) {
+            case int:
+                return value instanceof Number ? ((Number)value).intValue() : Integer.valueOf(value.toString())
+            case long:
+                return value instanceof Number ? ((Number)value).longValue() : Long.valueOf(value.toString())
+            case boolean:
+                return Boolean.valueOf(value.toString())
+            case String:
+                return value.toString()
+            case TimeUnit:
+                return TimeUnit.valueOf(value.toString())
+            default:
+                return value
+        }
+    }
+
+}
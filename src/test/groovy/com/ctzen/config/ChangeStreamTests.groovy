@@ -0,0 +1,161 @@
+package com.ctzen.config
+
+import groovy.transform.CompileStatic
+
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.BlockingQueue
+import java.util.concurrent.Executor
+import java.util.concurrent.Flow
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+
+import org.testng.annotations.Test
+
+/**
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class ChangeStreamTests {
+
+    private static final Executor DIRECT = { Runnable r -> r.run() } as Executor
+
+    private static class TestSubscriber implements Flow.Subscriber<ConfigChangeEvent> {
+
+        final BlockingQueue<Object> received = new ArrayBlockingQueue<>(100)
+
+        Flow.Subscription subscription
+
+        @Override
+        void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription
+        }
+
+        @Override
+        void onNext(final ConfigChangeEvent item) {
+            received.add(item.changedKeys)
+        }
+
+        @Override
+        void onError(final Throwable throwable) {
+            received.add(throwable)
+        }
+
+        @Override
+        void onComplete() {
+            received.add('complete')
+        }
+
+    }
+
+    private static Config newConfig() {
+        final Config config = new Config()
+        config.setLocations('class:com.ctzen.config.LocationsLoadingTestsConfig')
+        config.setLogLoadedValues(false)
+        config.load()
+        return config
+    }
+
+    void prefix() {
+        final Config config = newConfig()
+        final TestSubscriber subscriber = new TestSubscriber()
+        config.changes('db', DIRECT).subscribe(subscriber)
+        subscriber.subscription.request(Long.MAX_VALUE)
+        config.override('db', 1)
+        config.override('db.url', 'x')
+        config.override('dbx', 2)
+        config.override('foo', 'y')
+        assert [['db'] as Set, ['db.url'] as Set] == subscriber.received.toList()
+    }
+
+    void coalesce() {
+        final Config config = newConfig()
+        final TestSubscriber subscriber = new TestSubscriber()
+        config.changes(null, DIRECT).subscribe(subscriber)
+        config.override('a', 1)
+        config.override('b', 2)
+        config.override('a', 3)
+        assert subscriber.received.isEmpty()
+        subscriber.subscription.request(1)
+        assert [['a', 'b'] as Set] == subscriber.received.toList()
+        subscriber.received.clear()
+        config.override('c', 4)
+        config.override('d', 5)
+        subscriber.subscription.request(5)
+        assert [['c', 'd'] as Set] == subscriber.received.toList()
+        config.override('e', 6)
+        assert 2 == subscriber.received.size()
+    }
+
+    void cancel() {
+        final Config config = newConfig()
+        final TestSubscriber subscriber = new TestSubscriber()
+        config.changes('', DIRECT).subscribe(subscriber)
+        subscriber.subscription.request(10)
+        subscriber.subscription.cancel()
+        config.override('a', 1)
+        assert subscriber.received.isEmpty()
+    }
+
+    void cancelOnSubscribe() {
+        final Set<ConfigChangeListener> listeners = []
+        final Config config = new Config() {
+            @Override
+            void addChangeListener(final ConfigChangeListener listener) {
+                listeners << listener
+                super.addChangeListener(listener)
+            }
+
+            @Override
+            void removeChangeListener(final ConfigChangeListener listener) {
+                listeners.remove(listener)
+                super.removeChangeListener(listener)
+            }
+        }
+        config.setLocations('class:com.ctzen.config.LocationsLoadingTestsConfig')
+        config.setLogLoadedValues(false)
+        config.load()
+        final TestSubscriber subscriber = new TestSubscriber() {
+            @Override
+            void onSubscribe(final Flow.Subscription subscription) {
+                subscription.cancel()
+            }
+        }
+        config.changes('', DIRECT).subscribe(subscriber)
+        assert listeners.isEmpty()
+        config.override('a', 1)
+        assert subscriber.received.isEmpty()
+    }
+
+    void badRequest() {
+        final Config config = newConfig()
+        final TestSubscriber subscriber = new TestSubscriber()
+        config.changes('', DIRECT).subscribe(subscriber)
+        subscriber.subscription.request(0)
+        assert subscriber.received.poll() instanceof IllegalArgumentException
+        config.override('a', 1)
+        assert subscriber.received.isEmpty()
+    }
+
+    void rejected() {
+        final Config config = newConfig()
+        final TestSubscriber subscriber = new TestSubscriber()
+        config.changes('', { Runnable r -> throw new RejectedExecutionException('full') } as Executor)
+              .subscribe(subscriber)
+        subscriber.subscription.request(1)
+        config.override('a', 1)
+        assert subscriber.received.poll() instanceof RejectedExecutionException
+        config.override('b', 2)
+        assert subscriber.received.isEmpty()
+    }
+
+    void asyncDelivery() {
+        final Config config = newConfig()
+        final TestSubscriber subscriber = new TestSubscriber()
+        config.changes('foo').subscribe(subscriber)
+        subscriber.subscription.request(1)
+        config.override('foo', 'changed')
+        assert ['foo'] as Set == subscriber.received.poll(5, TimeUnit.SECONDS)
+    }
+
+}
@@ -0,0 +1,227 @@
+package com.ctzen.config
+
+import groovy.transform.CompileStatic
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicReference
+
+import org.testng.Reporter
+import org.testng.annotations.AfterMethod
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import com.ctzen.config.spring.ConfigPropertySource
+
+/**
+ * Readers on many threads while loads run back to back.
+ * <p>
+ * Load {@code n} publishes {@code gen = n}, {@code common.k<i> = n}, and either the {@code even.*} or the
+ * {@code odd.*} keys. Readers check that they only ever see whole versions:
+ * </p>
+ * <ul>
+ *     <li>{@code gen} never goes back, through {@link Config#get(String)} and {@link ConfigPropertySource}</li>
+ *     <li>keys in every version are always found</li>
+ *     <li>a {@link ConfigSnapshot} has one {@code gen} in all its values</li>
+ *     <li>a {@link Config#keySet()} has exactly one of the {@code even.*} and {@code odd.*} key sets</li>
+ *     <li>{@link Config#getRedactKeys()} only grows</li>
+ * </ul>
+ *
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class ConcurrencyStressTests {
+
+    private static final int KEYS = 50
+
+    private static final int SAMPLES = 1 << 16
+
+    private Path path
+
+    private Config config
+
+    @BeforeMethod
+    void setup() {
+        path = Files.createTempFile('concurrency-stress-tests-', '.properties')
+        write(0)
+        config = new Config()
+        config.setLocations("file:${path.toFile().canonicalPath}".toString())
+        config.setLogLoadedValues(false)
+        config.addRedactKeys('common.k0')
+        config.load()
+    }
+
+    @AfterMethod
+    void cleanup() {
+        Files.delete(path)
+    }
+
+    private void write(final int gen) {
+        final StringBuilder sb = new StringBuilder("gen=${gen}\n")
+        final String side = gen % 2 == 0 ? 'even' : 'odd'
+        for (int i = 0; i < KEYS; i++) {
+            sb.append("common.k${i}=${gen}\n").append("${side}.k${i}=${gen}\n")
+        }
+        Files.write(path, sb.toString().bytes)
+    }
+
+    /**
+     * Short run, in the test suite.
+     */
+    void readsDuringReloads() {
+        run(1, 4)
+    }
+
+    /**
+     * {@code gradle stress}, seconds by system property {@code stress.seconds} (default 10).
+     */
+    @Test(groups = 'stress')
+    void stress() {
+        run(Integer.getInteger('stress.seconds', 10), Runtime.runtime.availableProcessors() * 2)
+    }
+
+    private void run(final int seconds, final int readerCount) {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds)
+        final AtomicReference<Throwable> failure = new AtomicReference<>()
+        final CountDownLatch done = new CountDownLatch(readerCount + 1)
+        final List<Reader> readers = (0..<readerCount).collect { int i -> new Reader(i, config) }
+        int loads = 0
+        final Thread loader = new Thread({
+            try {
+                int gen = 0
+                while (System.nanoTime() < deadline && failure.get() == null) {
+                    write(++gen)
+                    config.load()
+                    loads = gen
+                }
+            }
+            catch (final Throwable e) {
+                failure.compareAndSet(null, e)
+            }
+            finally {
+                done.countDown()
+            }
+        } as Runnable, 'stress-loader')
+        final List<Thread> threads = readers.collect { Reader reader ->
+            new Thread({
+                try {
+                    while (System.nanoTime() < deadline && failure.get() == null) {
+                        reader.read()
+                    }
+                }
+                catch (final Throwable e) {
+                    failure.compareAndSet(null, e)
+                }
+                finally {
+                    done.countDown()
+                }
+            } as Runnable, "stress-reader-${reader.id}".toString())
+        }
+        loader.start()
+        threads*.start()
+        assert done.await(seconds + 60, TimeUnit.SECONDS)
+        if (failure.get() != null) {
+            throw new AssertionError('Inconsistent read during reloads', failure.get())
+        }
+        report(seconds, loads, readers)
+        assert loads > 0
+        assert readers.every { Reader reader -> reader.ops > 0 }
+    }
+
+    private static void report(final int seconds, final int loads, final List<Reader> readers) {
+        final long ops = (long)readers.sum { Reader reader -> reader.ops }
+        final long[] samples = readers.collect { Reader reader -> reader.samples() }.flatten() as long[]
+        Arrays.sort(samples)
+        final String result = "${readers.size()} readers, ${loads} loads in ${seconds}s: " +
+                              "${(ops / seconds).round()} reads/s, latency " +
+                              "p50 ${micros(samples, 0.5d)}us, p99 ${micros(samples, 0.99d)}us, " +
+                              "p99.9 ${micros(samples, 0.999d)}us, max ${micros(samples, 1d)}us"
+        Reporter.log(result)
+    }
+
+    private static String micros(final long[] sorted, final double quantile) {
+        final int index = Math.min(sorted.length - 1, (int)Math.ceil(quantile * sorted.length) - 1)
+        return (sorted[Math.max(0, index)] / 1000).round(1).toString()
+    }
+
+    /**
+     * One reader thread, cycling through the read operations.
+     */
+    private static class Reader {
+
+        Reader(final int id, final Config config) {
+            this.id = id
+            this.config = config
+            this.propertySource = new ConfigPropertySource('config', config)
+        }
+
+        final int id
+
+        private final Config config
+
+        private final ConfigPropertySource propertySource
+
+        long ops
+
+        private int lastGen
+
+        private Set<String> lastRedactKeys = Collections.emptySet()
+
+        /**
+         * Latency of every read, the latest {@link #SAMPLES} kept.
+         */
+        private final long[] latencies = new long[SAMPLES]
+
+        void read() {
+            final int op = (int)(ops % 5)
+            final long start = System.nanoTime()
+            switch (op) {
+                case 0:
+                    checkGen(Integer.parseInt((String)config.get('gen')))
+                    final String key = "common.k${(int)(ops % KEYS)}".toString()
+                    assert config.get(key) != null: "${key} not found"
+                    break
+                case 1:
+                    checkGen(Integer.parseInt((String)propertySource.getProperty('gen')))
+                    break
+                case 2:
+                    final ConfigSnapshot snapshot = config.getSnapshot()
+                    final Object gen = snapshot.get('gen')
+                    for (int i = 0; i < KEYS; i++) {
+                        assert gen == snapshot.get("common.k${i}".toString()): "torn snapshot ${snapshot.version}"
+                    }
+                    break
+                case 3:
+                    final Set<String> keys = config.keySet()
+                    final boolean even = keys.contains('even.k0')
+                    final String other = even ? 'odd' : 'even'
+                    for (int i = 0; i < KEYS; i++) {
+                        assert keys.contains("${even ? 'even' : 'odd'}.k${i}".toString()): "torn key set"
+                        assert !keys.contains("${other}.k${i}".toString()): "torn key set"
+                    }
+                    break
+                default:
+                    final Set<String> redactKeys = config.getRedactKeys()
+                    assert redactKeys.containsAll(lastRedactKeys): 'redact keys shrank'
+                    assert redactKeys.contains('common.k0')
+                    lastRedactKeys = redactKeys
+            }
+            latencies[(int)(ops % SAMPLES)] = System.nanoTime() - start
+            ops++
+        }
+
+        private void checkGen(final int gen) {
+            assert gen >= lastGen: "gen went back from ${lastGen} to ${gen}"
+            lastGen = gen
+        }
+
+        long[] samples() {
+            return ops < SAMPLES ? Arrays.copyOf(latencies, (int)ops) : latencies
+        }
+
+    }
+
+}
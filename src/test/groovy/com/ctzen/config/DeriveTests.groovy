@@ -0,0 +1,96 @@
+package com.ctzen.config
+
+import groovy.transform.CompileStatic
+
+import org.testng.annotations.BeforeClass
+import org.testng.annotations.Test
+
+/**
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class DeriveTests {
+
+    @BeforeClass
+    void setup() {
+        base = new Config()
+        base.setLocations('class:com.ctzen.config.DeriveTestsConfig')
+        base.setProfiles(ConfigProfile.DEV)
+        base.load()
+        assert !base.empty
+    }
+
+    private Config base
+
+    void overlay() {
+        final Config derived = base.derive('classpath:config/derive-tests-overlay.gy')
+        assert base.is(derived.parent)
+        derived.load()
+        assert 'I am overlay' == derived.get('foo')
+        assert 'bar from base' == derived.get('bar')
+        assert 'qux from base' == derived.get('l1.qux')
+        assert 'quux from overlay' == derived.get('l1.quux')
+        assert 'acme@dev' == derived.get('tenant')
+        assert base.size() + 1 == derived.size()
+        assert base.keySet() + 'tenant' == derived.keySet()
+    }
+
+    void parentUntouched() {
+        final Config derived = base.derive('classpath:config/derive-tests-overlay.gy')
+        derived.load()
+        assert 'I am base' == base.get('foo')
+        assert 'quux from base' == base.get('l1.quux')
+        assert !base.containsKey('tenant')
+    }
+
+    void inheritsRedactKeys() {
+        final Config derived = base.derive()
+        derived.addRedactKeys('tenant')
+        derived.load()
+        assert ['secret', 'tenant'] as Set == derived.redactKeys
+        assert ['secret'] as Set == base.redactKeys
+        assert 'base secret' == derived.get('secret')
+    }
+
+    void noOverlay() {
+        final Config derived = base.derive()
+        derived.load()
+        assert base.keySet() == derived.keySet()
+        assert 'I am base' == derived.get('foo')
+    }
+
+    void firstLoadReportsOverlay() {
+        final Config derived = base.derive('classpath:config/derive-tests-overlay.gy')
+        final List<Set<String>> changes = []
+        derived.addChangeListener({ Config config, Set<String> changedKeys ->
+            changes << changedKeys
+        } as ConfigChangeListener)
+        derived.load()
+        assert [['foo', 'l1.quux', 'tenant'] as Set] == changes
+    }
+
+    void parentOverridesNotInherited() {
+        final Config parent = new Config()
+        parent.setLocations('class:com.ctzen.config.DeriveTestsConfig')
+        parent.setProfiles(ConfigProfile.DEV)
+        parent.load()
+        parent.override('bar', 'bar overridden')
+        final Config derived = parent.derive('classpath:config/derive-tests-overlay.gy')
+        derived.load()
+        assert 'bar overridden' == parent.get('bar')
+        assert 'bar from base' == derived.get('bar')
+        assert 'bar from base' == derived.snapshot.get('bar')
+    }
+
+    void noMetaInfReload() {
+        // META-INF locations are loaded by the parent only
+        final Config root = new Config()
+        root.load()
+        final Config derived = root.derive('classpath:config/derive-tests-overlay.gy')
+        derived.load()
+        assert 'I am overlay' == derived.get('foo')
+        assert 'I am meta-inf' == root.get('foo')
+    }
+
+}
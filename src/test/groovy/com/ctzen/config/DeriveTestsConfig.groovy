@@ -0,0 +1,12 @@
+package com.ctzen.config
+
+foo = 'I am base'
+
+bar = 'bar from base'
+
+l1 {
+    qux = 'qux from base'
+    quux = 'quux from base'
+}
+
+secret = new Redact<>('base secret')
@@ -0,0 +1,177 @@
+package com.ctzen.config
+
+import groovy.transform.CompileStatic
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.security.KeyStore
+
+import javax.crypto.KeyGenerator
+import javax.crypto.SecretKey
+
+import org.testng.annotations.AfterMethod
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import com.ctzen.config.exception.ConfigException
+
+/**
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class EncryptedTests {
+
+    private SecretKey key
+
+    private Path script
+
+    private Path properties
+
+    private Config config
+
+    @BeforeMethod
+    void setup() {
+        final KeyGenerator generator = KeyGenerator.getInstance('AES')
+        generator.init(128)
+        key = generator.generateKey()
+        script = Files.createTempFile('encrypted-tests-', '.gy')
+        Files.write(script, """
+import com.ctzen.config.Encrypted
+db.password = new Encrypted('${Encrypted.encrypt('s3cret', key)}')
+db.user = 'scott'
+""".toString().bytes)
+        properties = Files.createTempFile('encrypted-tests-', '.properties')
+        Files.write(properties, "api.token=ENC(${Encrypted.encrypt('t0ken', key)})\n".toString().bytes)
+        config = new Config()
+        config.setLocations("file:${script.toFile().canonicalPath}".toString(),
+                            "file:${properties.toFile().canonicalPath}".toString())
+        config.setLogLoadedValues(false)
+        config.setSecretKeySource({ -> key } as SecretKeySource)
+    }
+
+    @AfterMethod
+    void cleanup() {
+        Files.delete(script)
+        Files.delete(properties)
+    }
+
+    void encryptedValues() {
+        config.load()
+        assert 's3cret' == config.get('db.password')
+        assert 't0ken' == config.get('api.token')
+        assert 'scott' == config.get('db.user')
+    }
+
+    void decryptedOnFirstAccess() {
+        config.load()
+        final Encrypted encrypted = (Encrypted)config.getSnapshot().get('db.password')
+        assert !encrypted.isDecrypted()
+        config.get('db.password')
+        assert encrypted.isDecrypted()
+        config.wipeSecrets()
+        assert !encrypted.isDecrypted()
+        assert 's3cret' == config.get('db.password')
+    }
+
+    void secretChars() {
+        config.load()
+        assert 's3cret'.toCharArray() == config.getSecretChars('db.password')
+        assert 'scott'.toCharArray() == config.getSecretChars('db.user')
+    }
+
+    void redacted() {
+        config.load()
+        assert config.getRedactKeys().containsAll(['db.password', 'api.token'])
+        final StringWriter out = new StringWriter()
+        config.export(out, ExportFormat.PROPERTIES)
+        assert !out.toString().contains('s3cret')
+        assert !config.dumpRedacted().contains('t0ken')
+        assert '<encrypted>' == config.getSnapshot().get('db.password').toString()
+    }
+
+    void unchangedOnReload() {
+        config.load()
+        final Encrypted encrypted = (Encrypted)config.getSnapshot().get('db.password')
+        assert encrypted == new Encrypted(encrypted.toBase64())
+        assert encrypted.hashCode() == new Encrypted(encrypted.toBase64()).hashCode()
+        config.get('db.password')
+        final List<Set<String>> changes = []
+        config.addChangeListener({ Config c, Set<String> changedKeys ->
+            changes << changedKeys
+        } as ConfigChangeListener)
+        config.load()
+        assert changes.every { Set<String> changedKeys -> changedKeys.isEmpty() }
+        assert encrypted.is(config.getSnapshot().get('db.password'))
+        assert encrypted.isDecrypted()
+    }
+
+    void literalWithoutKeySource() {
+        Files.write(properties, 'api.token=ENC(not base64!)\n'.bytes)
+        config.setSecretKeySource(null)
+        config.load()
+        assert 'ENC(not base64!)' == config.get('api.token')
+        assert !config.getRedactKeys().contains('api.token')
+    }
+
+    @Test(expectedExceptions = ConfigException)
+    void noKeySource() {
+        config.setSecretKeySource(null)
+        config.load()
+        config.get('db.password')
+    }
+
+    @Test(expectedExceptions = ConfigException)
+    void wrongKey() {
+        final KeyGenerator generator = KeyGenerator.getInstance('AES')
+        generator.init(128)
+        final SecretKey wrong = generator.generateKey()
+        config.setSecretKeySource({ -> wrong } as SecretKeySource)
+        config.load()
+        config.get('db.password')
+    }
+
+    private void writeKeyStore(final Path file) {
+        final KeyStore keyStore = KeyStore.getInstance('PKCS12')
+        keyStore.load(null, null)
+        keyStore.setEntry('config', new KeyStore.SecretKeyEntry(key),
+                          new KeyStore.PasswordProtection('keypass'.toCharArray()))
+        file.toFile().withOutputStream { OutputStream out -> keyStore.store(out, 'storepass'.toCharArray()) }
+    }
+
+    void keyStore() {
+        final Path file = Files.createTempFile('encrypted-tests-', '.p12')
+        try {
+            writeKeyStore(file)
+            config.setSecretKeySource(new KeyStoreSecretKeySource(file, 'PKCS12', 'storepass'.toCharArray(),
+                                                                  'config', 'keypass'.toCharArray()))
+            config.load()
+            assert 's3cret' == config.get('db.password')
+        }
+        finally {
+            Files.delete(file)
+        }
+    }
+
+    void keyStoreRetried() {
+        final Path file = Files.createTempFile('encrypted-tests-', '.p12')
+        Files.delete(file)
+        try {
+            final KeyStoreSecretKeySource keySource = new KeyStoreSecretKeySource(file, 'PKCS12',
+                    'storepass'.toCharArray(), 'config', 'keypass'.toCharArray())
+            try {
+                keySource.getSecretKey()
+                assert false: 'no keystore file yet'
+            }
+            catch (final ConfigException e) {
+                assert e.cause instanceof IOException
+            }
+            writeKeyStore(file)
+            assert key == keySource.getSecretKey()
+        }
+        finally {
+            Files.deleteIfExists(file)
+        }
+    }
+
+}
@@ -0,0 +1,166 @@
+package com.ctzen.config
+
+import groovy.transform.CompileDynamic
+import groovy.transform.CompileStatic
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.TimeUnit
+
+import org.testng.SkipException
+import org.testng.annotations.AfterMethod
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import com.ctzen.config.exception.ConfigException
+
+/**
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class EnvironmentOverlayTests {
+
+    private static final String SCRIPT = '''
+db.pool.size = 10
+db.'pool-size' = 1
+db.url = 'jdbc:h2:mem:'
+db.jdbc = '\${db.url};MODE=Oracle'
+feature.enabled = false
+path = 'loaded'
+user.name = 'loaded'
+'''
+
+    private Path path
+
+    private Config config
+
+    @BeforeMethod
+    void setup() {
+        path = Files.createTempFile('env-overlay-tests-', '.gy')
+        Files.write(path, SCRIPT.bytes)
+        config = new Config()
+        config.setLocations("file:${path.toFile().canonicalPath}".toString())
+        config.setLogLoadedValues(false)
+    }
+
+    @AfterMethod
+    void cleanup() {
+        Files.delete(path)
+        ['db.url', 'FEATURE_ENABLED', 'DB_POOL_SIZE', 'PATH'].each { String name ->
+            System.clearProperty('config.' + name)
+        }
+    }
+
+    void relaxedName() {
+        assert 'DB_POOL_SIZE' == EnvironmentOverlay.relaxedName('db.pool-size')
+        assert 'DB_POOL_SIZE' == EnvironmentOverlay.relaxedName('DB_POOL_SIZE')
+    }
+
+    void disabledByDefault() {
+        System.setProperty('config.db.url', 'jdbc:h2:file:')
+        config.load()
+        assert 'jdbc:h2:mem:' == config.get('db.url')
+    }
+
+    void systemProperties() {
+        System.setProperty('config.db.url', 'jdbc:h2:file:')
+        System.setProperty('config.FEATURE_ENABLED', 'TRUE')
+        config.setOverlaySystemProperties(true)
+        config.setInterpolateValues(true)
+        config.load()
+        assert 'jdbc:h2:file:' == config.get('db.url')
+        assert 'jdbc:h2:file:;MODE=Oracle' == config.get('db.jdbc')
+        assert true == config.get('feature.enabled')
+    }
+
+    void ambiguous() {
+        System.setProperty('config.DB_POOL_SIZE', '20')
+        config.setOverlaySystemProperties(true)
+        config.load()
+        assert 10 == config.get('db.pool.size')
+        assert 1 == config.get('db.pool-size')
+    }
+
+    @Test(expectedExceptions = ConfigException,
+          expectedExceptionsMessageRegExp = "Cannot convert system property config.FEATURE_ENABLED to Boolean for config key 'feature.enabled'")
+    void badValue() {
+        System.setProperty('config.FEATURE_ENABLED', 'yes')
+        config.setOverlaySystemProperties(true)
+        config.load()
+    }
+
+    void environment() {
+        final String env = System.getenv('PATH')
+        if (env == null) {
+            throw new SkipException('No PATH environment variable')
+        }
+        config.setOverlayEnvironment(true)
+        config.load()
+        assert 'loaded' == config.get('path')     // not prefixed
+        config.setEnvironmentPrefix('')
+        config.load()
+        assert env == config.get('path')
+    }
+
+    void systemPropertyPrefix() {
+        config.setOverlaySystemProperties(true)
+        config.load()
+        assert 'loaded' == config.get('user.name')     // not prefixed
+        config.setSystemPropertyPrefix('')
+        config.load()
+        assert System.getProperty('user.name') == config.get('user.name')
+    }
+
+    @CompileDynamic     // package-private field
+    private static PersistentMap.Builder emptyBuilder() {
+        PersistentMap.EMPTY.toBuilder()
+    }
+
+    void environmentPrefix() {
+        final PersistentMap.Builder builder = emptyBuilder()
+                .put('db.url', 'jdbc:h2:mem:').put('path', 'loaded').put('port', 80)
+        final Map<String, Object> overlaid = EnvironmentOverlay.overlay(builder,
+                [CONFIG_DB_URL: 'jdbc:h2:file:', PATH: '/bin', PORT: 'abc'], 'CONFIG_', null, 'config.')
+        assert [('db.url'): 'jdbc:h2:file:'] == overlaid
+    }
+
+    @Test(expectedExceptions = ConfigException,
+          expectedExceptionsMessageRegExp = "Cannot convert environment variable CONFIG_PORT to Integer for config key 'port'")
+    void badEnvironmentValue() {
+        final PersistentMap.Builder builder = emptyBuilder().put('port', 80)
+        EnvironmentOverlay.overlay(builder, [CONFIG_PORT: 'abc'], 'CONFIG_', null, 'config.')
+    }
+
+    void loadedTypes() {
+        final PersistentMap.Builder builder = emptyBuilder()
+                .put('ratio', 1.5f).put('unit', TimeUnit.SECONDS).put('flag', 'x' as char)
+                .put('name', 'loaded').put('none', null)
+        final Map<String, Object> overlaid = EnvironmentOverlay.overlay(builder,
+                [CONFIG_RATIO: '2.5', CONFIG_UNIT: 'MINUTES', CONFIG_FLAG: 'y', CONFIG_NAME: 'n', CONFIG_NONE: 'v'],
+                'CONFIG_', null, 'config.')
+        assert 2.5f == overlaid.ratio
+        assert overlaid.ratio instanceof Float
+        assert TimeUnit.MINUTES == overlaid.unit
+        assert 'y' as char == overlaid.flag
+        assert [name: 'n', none: 'v'] == overlaid.subMap(['name', 'none'])
+    }
+
+    @Test(expectedExceptions = ConfigException,
+          expectedExceptionsMessageRegExp = "Cannot convert environment variable CONFIG_HOSTS to ArrayList for config key 'hosts'")
+    void notConvertible() {
+        final PersistentMap.Builder builder = emptyBuilder().put('hosts', ['a', 'b'])
+        EnvironmentOverlay.overlay(builder, [CONFIG_HOSTS: 'c'], 'CONFIG_', null, 'config.')
+    }
+
+    void systemPropertiesOverEnvironment() {
+        System.setProperty('config.PATH', 'from system property')
+        config.setOverlayEnvironment(true)
+        config.setOverlaySystemProperties(true)
+        config.load()
+        assert 'from system property' == config.get('path')
+        config.override('path', 'overridden')
+        assert 'overridden' == config.get('path')
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.ctzen.config
+
+import groovy.json.JsonSlurper
+import groovy.transform.CompileStatic
+
+import org.testng.annotations.BeforeClass
+import org.testng.annotations.Test
+
+/**
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class ExportTests {
+
+    @BeforeClass
+    void setup() {
+        config = new Config()
+        config.setLocations('class:com.ctzen.config.RedactTestsConfig')
+        config.addRedactKeys('redactedByName')
+        config.load()
+        config.override('tricky key=', ' café\t"quoted"\n\\')
+        config.override('number', 42)
+        config.override('list', [1, 'two', null])
+        config.override('map', [a: true])
+        config.override('secret.override', new Redact<>('hidden'))
+        config.override('lazy', new Lazy<>({ 'computed' }))
+    }
+
+    private Config config
+
+    private String export(final ExportFormat format) {
+        final StringWriter writer = new StringWriter()
+        config.export(writer, format)
+        return writer.toString()
+    }
+
+    void properties() {
+        final Properties props = new Properties()
+        props.load(new StringReader(export(ExportFormat.PROPERTIES)))
+        assert config.keySet() == props.stringPropertyNames()
+        assert ' café\t"quoted"\n\\' == props.getProperty('tricky key=')
+        assert '42' == props.getProperty('number')
+        assert '<redacted>' == props.getProperty('redactedByConfig')
+        assert '<redacted>' == props.getProperty('redactedByName')
+        assert '<redacted>' == props.getProperty('secret.override')
+        assert 'computed' == props.getProperty('lazy')
+    }
+
+    void propertiesAscii() {
+        assert export(ExportFormat.PROPERTIES).chars().allMatch { int c -> c < 0x80 }
+    }
+
+    void json() {
+        final String json = export(ExportFormat.JSON)
+        final Map<String, Object> map = (Map<String, Object>)new JsonSlurper().parseText(json)
+        assert config.keySet() == map.keySet()
+        assert ' café\t"quoted"\n\\' == map['tricky key=']
+        assert 42 == map['number']
+        assert [1, 'two', null] == map['list']
+        assert [a: true] == map['map']
+        assert 'you can see me' == map['clear']
+        assert '<redacted>' == map['redactedByConfig']
+        assert !json.contains('redacted by')
+        assert !json.contains('hidden')
+    }
+
+    void ndjson() {
+        final List<String> lines = export(ExportFormat.NDJSON).readLines()
+        assert config.keySet().size() == lines.size()
+        final List<String> keys = lines.collect { String line ->
+            final Map<String, Object> entry = (Map<String, Object>)new JsonSlurper().parseText(line)
+            return (String)entry['key']
+        }
+        assert config.keySet() as List == keys
+    }
+
+    void emptyJson() {
+        final Config empty = new Config()
+        final StringWriter writer = new StringWriter()
+        empty.export(writer, ExportFormat.JSON)
+        assert [:] == new JsonSlurper().parseText(writer.toString())
+    }
+
+    void outputStream() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream()
+        config.export(out, ExportFormat.NDJSON)
+        assert out.toString('UTF-8') == export(ExportFormat.NDJSON)
+    }
+
+}
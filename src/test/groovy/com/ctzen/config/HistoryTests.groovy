@@ -0,0 +1,124 @@
+package com.ctzen.config
+
+import groovy.transform.CompileStatic
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import org.testng.annotations.AfterMethod
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import com.ctzen.config.exception.ConfigException
+
+/**
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class HistoryTests {
+
+    private Path path
+
+    private Config config
+
+    @BeforeMethod
+    void setup() {
+        path = Files.createTempFile('history-tests-', '.gy')
+        config = new Config()
+        config.setLocations("file:${path.toFile().canonicalPath}".toString())
+        config.setLogLoadedValues(false)
+    }
+
+    @AfterMethod
+    void cleanup() {
+        Files.delete(path)
+    }
+
+    private void load(final String script) {
+        Files.write(path, script.bytes)
+        config.load()
+    }
+
+    void versions() {
+        load("foo = 'v1'")
+        load("foo = 'v2'")
+        load("foo = 'v3'")
+        assert 3 == config.snapshot.version
+        assert [3L, 2L, 1L] == config.history.collect { ConfigSnapshot s -> s.version }
+        assert 'v1' == config.history[2].get('foo')
+    }
+
+    void rollback() {
+        load("foo = 'good'\nbar = 1")
+        load("foo = 'bad'\nbar = 1")
+        final Set<String> changed = []
+        config.addChangeListener { Config cfg, Set<String> keys -> changed.addAll(keys) }
+        config.rollback()
+        assert 'good' == config.get('foo')
+        assert 1 == config.snapshot.version
+        assert ['foo'] as Set == changed
+        config.rollback(2)
+        assert 'bad' == config.get('foo')
+        load("foo = 'fixed'")
+        assert 3 == config.snapshot.version
+        assert 'fixed' == config.get('foo')
+    }
+
+    void rollbackKeepsOverrides() {
+        load("foo = 'good'")
+        load("foo = 'bad'\nbar = 1")
+        config.override('bar', 2)
+        config.rollback(1)
+        assert 'good' == config.get('foo')
+        assert 2 == config.get('bar')
+        config.clearOverrides()
+        assert !config.containsKey('bar')
+    }
+
+    @Test(expectedExceptions = ConfigException, expectedExceptionsMessageRegExp = 'No config version before 1')
+    void rollbackFirst() {
+        load("foo = 'v1'")
+        config.rollback()
+    }
+
+    void diff() {
+        load("same = 1\nchanged = 'a'\nremoved = true")
+        load("same = 1\nchanged = 'b'\nadded = [1, 2]")
+        final ConfigDiff diff = config.diff(1, 2)
+        assert ['added'] as Set == diff.added
+        assert ['removed'] as Set == diff.removed
+        assert ['changed'] as Set == diff.changed
+        assert 'a' == diff.from.get('changed')
+        assert 'b' == diff.to.get('changed')
+        assert config.diff(2, 2).empty
+        assert ['removed'] as Set == config.diff(2, 1).added
+    }
+
+    void versionsShareUnchangedEntries() {
+        final String script = (0..<300).collect { int i -> "k${i} = [${i}]" }.join('\n')
+        load(script)
+        load(script.replace('k7 = [7]', 'k7 = [-7]') + '\nadded = 1')
+        load(script.replace('k7 = [7]', 'k7 = [-7]'))
+        final List<ConfigSnapshot> history = config.history
+        assert history[2].get('k8').is(history[1].get('k8'))
+        assert history[1].get('k8').is(history[0].get('k8'))
+        assert history[1].get('k7').is(history[0].get('k7'))
+        assert !history[2].get('k7').is(history[1].get('k7'))
+        final ConfigDiff diff = config.diff(1, 3)
+        assert ['k7'] as Set == diff.changed
+        assert diff.added.isEmpty() && diff.removed.isEmpty()
+        assert ['added'] as Set == config.diff(2, 3).removed
+    }
+
+    @Test(expectedExceptions = ConfigException, expectedExceptionsMessageRegExp = 'No such config version: 1')
+    void historySize() {
+        config.setHistorySize(2)
+        load("foo = 'v1'")
+        load("foo = 'v2'")
+        load("foo = 'v3'")
+        assert [3L, 2L] == config.history.collect { ConfigSnapshot s -> s.version }
+        config.rollback(1)
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.ctzen.config
+
+import groovy.transform.CompileStatic
+
+import org.testng.annotations.DataProvider
+import org.testng.annotations.Test
+
+import com.ctzen.config.exception.ConfigException
+
+/**
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class InterpolationTests {
+
+    @DataProvider(name = 'interpolationData')
+    private Object[][] interpolationData() {
+        [
+            [ 'url', 'http://acme.com:8080/api/v1' ],
+            [ 'path', 'api/v1' ],
+            [ 'timeout', '30' ],
+            [ 'missing', '${no.such.key}' ],
+            [ 'literal', 'no references' ]
+        ] as Object[][]
+    }
+
+    private static Config newConfig(final String location) {
+        final Config config = new Config()
+        config.setInterpolateValues(true)
+        config.setLocations(location)
+        return config
+    }
+
+    @Test(dataProvider = 'interpolationData')
+    void interpolation(final String key, final Object expected) {
+        final Config config = newConfig('classpath:config/interpolation-tests.properties')
+        config.load()
+        assert expected == config.get(key)
+    }
+
+    void profileOverrides() {
+        final Config config = newConfig('classpath:config/interpolation-tests.properties')
+        config.setProfiles(ConfigProfile.DEV)
+        config.load()
+        assert 'http://localhost:8080/api/v1' == config.get('url')
+    }
+
+    void overridesAreLiteral() {
+        final Config config = newConfig('classpath:config/interpolation-tests.properties')
+        config.load()
+        config.override('literal', '${host}')
+        assert '${host}' == config.get('literal')
+    }
+
+    void offByDefault() {
+        final Config config = new Config()
+        config.setLocations('classpath:config/interpolation-tests.properties')
+        config.load()
+        assert 'http://${host}:${port}/${path}' == config.get('url')
+        assert '${no.such.timeout:30}' == config.get('timeout')
+    }
+
+    @Test(expectedExceptions = ConfigException, expectedExceptionsMessageRegExp = 'Circular config reference: .*')
+    void circular() {
+        final Config config = newConfig('classpath:config/interpolation-tests-circular.properties')
+        config.load()
+    }
+
+    void derived() {
+        final Config base = newConfig('classpath:config/interpolation-tests.properties')
+        base.load()
+        final Config derived = base.derive('classpath:config/interpolation-tests@dev.properties')
+        derived.addLocations('classpath:config/interpolation-tests-derived.properties')
+        derived.load()
+        assert 'localhost/api/v1' == derived.get('derived')
+        assert 'http://acme.com:8080/api/v1' == derived.get('url')     // as the parent resolved it
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.ctzen.config
+
+import groovy.transform.CompileStatic
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import jdk.jfr.Recording
+import jdk.jfr.consumer.RecordedEvent
+import jdk.jfr.consumer.RecordingFile
+import org.testng.annotations.BeforeClass
+import org.testng.annotations.Test
+
+import com.ctzen.config.jfr.ConfigMissEvent
+
+/**
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class JfrTests {
+
+    private List<RecordedEvent> events
+
+    @BeforeClass
+    void record() {
+        final Recording recording = new Recording()
+        ['Load', 'Loader', 'Swap', 'Miss', 'LazyEvaluation'].each {
+            recording.enable("com.ctzen.config.${it}".toString())
+        }
+        recording.start()
+        final Config config = new Config()
+        config.setLocations(
+            'class:com.ctzen.config.LazyTestsConfig',
+            'classpath:config/test.properties'
+        )
+        config.setProfiles(ConfigProfile.DEV)
+        config.load()
+        config.override('foo', 'overridden')
+        config.get('greeting')
+        ConfigMissEvent.SAMPLE_INTERVAL.times { config.get('no.such.key', null) }
+        recording.stop()
+        final Path path = Files.createTempFile('slurper-configuration-test-', '.jfr')
+        try {
+            recording.dump(path)
+            events = RecordingFile.readAllEvents(path)
+        }
+        finally {
+            recording.close()
+            Files.delete(path)
+        }
+    }
+
+    private List<RecordedEvent> events(final String name) {
+        events.findAll { RecordedEvent event -> event.eventType.name == "com.ctzen.config.${name}".toString() }
+    }
+
+    void load() {
+        final List<RecordedEvent> loads = events('Load')
+        assert 1 == loads.size()
+        final RecordedEvent load = loads[0]
+        assert 'dev' == load.getString('profiles')
+        assert 3 == load.getInt('locationCount')   // including META-INF
+        assert load.getInt('keyCount') > 0
+        assert load.getBoolean('success')
+    }
+
+    void loader() {
+        final List<RecordedEvent> loaders = events('Loader')
+        assert 3 == loaders.size()
+        final RecordedEvent properties = loaders.find { RecordedEvent event ->
+            event.getString('location') == 'classpath:config/test.properties'
+        }
+        assert 'com.ctzen.config.loader.PropertiesLoader' == properties.getClass('loader').name
+        assert 1 == properties.getInt('profileCount')
+        assert 2 == properties.getInt('keyCount')  // base and @dev
+    }
+
+    void swap() {
+        assert ['load', 'override'] == events('Swap').collect { RecordedEvent event -> event.getString('cause') }
+        assert 1 == events('Swap')[1].getInt('changedKeyCount')
+    }
+
+    void miss() {
+        final List<RecordedEvent> misses = events('Miss')
+        assert 1 == misses.size()
+        assert 'no.such.key' == misses[0].getString('key')
+    }
+
+    void lazyEvaluation() {
+        final List<RecordedEvent> evaluations = events('LazyEvaluation')
+        assert 1 == evaluations.size()
+        assert 'greeting' == evaluations[0].getString('key')
+    }
+
+}
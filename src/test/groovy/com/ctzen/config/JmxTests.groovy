@@ -0,0 +1,126 @@
+package com.ctzen.config
+
+import groovy.transform.CompileStatic
+
+import java.lang.management.ManagementFactory
+
+import javax.management.MBeanServer
+import javax.management.ObjectName
+import javax.management.openmbean.CompositeData
+
+import org.testng.annotations.AfterClass
+import org.testng.annotations.BeforeClass
+import org.testng.annotations.Test
+
+import com.ctzen.config.exception.ConfigException
+import com.ctzen.config.loader.GroovyScriptResourceLoader
+import com.ctzen.config.loader.ScriptCompilerOptions
+
+/**
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class JmxTests {
+
+    private final MBeanServer server = ManagementFactory.platformMBeanServer
+
+    private Config config
+
+    private ObjectName name
+
+    @BeforeClass
+    void register() {
+        config = new Config()
+        config.setLocations(
+            'class:com.ctzen.config.LocationsLoadingTestsConfig',
+            'classpath:config/test.properties'
+        )
+        config.load()
+        name = config.registerMBean('jmx-tests')
+    }
+
+    @AfterClass
+    void unregister() {
+        config.unregisterMBean()
+        assert !server.isRegistered(name)
+    }
+
+    void objectName() {
+        assert 'com.ctzen.config:type=Config,name="jmx-tests"' == name.toString()
+        assert server.isRegistered(name)
+    }
+
+    void attributes() {
+        assert config.keySet().size() == server.getAttribute(name, 'KeyCount')
+        assert null != server.getAttribute(name, 'LastLoadTime')
+        assert 1L <= (long)server.getAttribute(name, 'LoadCount')
+        final CompositeData[] locations = (CompositeData[])server.getAttribute(name, 'Locations')
+        assert locations.collect { CompositeData location -> location.get('location') }
+                        .containsAll(['class:com.ctzen.config.LocationsLoadingTestsConfig', 'classpath:config/test.properties'])
+        assert locations.every { CompositeData location -> location.get('status') == 'LOADED' }
+    }
+
+    void lookupHitRate() {
+        final long hits = config.lookupHitCount
+        final long misses = config.lookupMissCount
+        config.get('foo')
+        config.get('no.such.key', null)
+        assert hits + 1 == (long)server.getAttribute(name, 'LookupHitCount')
+        assert misses + 1 == (long)server.getAttribute(name, 'LookupMissCount')
+        final double rate = (double)server.getAttribute(name, 'LookupHitRate')
+        assert rate > 0 && rate < 1
+    }
+
+    void reload() {
+        final long loadCount = config.stats.loadCount
+        server.invoke(name, 'reload', new Object[0], new String[0])
+        assert loadCount + 1 == config.stats.loadCount
+        server.invoke(name, 'reloadLocation', ['classpath:config/test.properties'] as Object[],
+                [String.name] as String[])
+        assert loadCount + 2 == config.stats.loadCount
+        assert config.stats.locations.every { ConfigLocationStats location -> location.status == ConfigLocationStats.Status.LOADED }
+    }
+
+    @Test(expectedExceptions = ConfigException,
+          expectedExceptionsMessageRegExp = 'Not a loaded location: classpath:config/nope.properties')
+    void reloadUnknownLocation() {
+        config.reloadLocation('classpath:config/nope.properties')
+    }
+
+    void dumpRedacted() {
+        final String dump = (String)server.invoke(name, 'dumpRedacted', new Object[0], new String[0])
+        assert dump.startsWith("${config.keySet().size()} config values:")
+        assert dump.contains('\n    foo ')
+    }
+
+    void unregisteredOnDestroy() {
+        final Config destroyed = new Config()
+        destroyed.setLocations('classpath:config/test.properties')
+        destroyed.load()
+        final ObjectName destroyedName = destroyed.registerMBean('jmx-tests-destroyed')
+        assert server.isRegistered(destroyedName)
+        destroyed.destroy()
+        assert !server.isRegistered(destroyedName)
+    }
+
+    void failedLoad() {
+        final Config failing = new Config()
+        final ScriptCompilerOptions options = new ScriptCompilerOptions()
+        options.setMaxIterations(10)
+        failing.addLoaders(new GroovyScriptResourceLoader(options))
+        failing.setLocations('classpath:config/script-compiler-tests-endless.gy')
+        try {
+            failing.load()
+            assert false
+        }
+        catch (final ConfigException ignored) {
+        }
+        final ConfigStats stats = failing.stats
+        assert 1 == stats.loadFailureCount
+        final ConfigLocationStats location = stats.locations.last()
+        assert ConfigLocationStats.Status.FAILED == location.status
+        assert 'Config script exceeded 10 iterations' == location.error
+    }
+
+}
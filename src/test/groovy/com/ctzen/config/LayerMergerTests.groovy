@@ -0,0 +1,182 @@
+package com.ctzen.config
+
+import groovy.transform.CompileStatic
+
+import org.testng.Reporter
+
+import com.ctzen.config.loader.FlatConfigObject
+import org.testng.annotations.Test
+
+/**
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class LayerMergerTests {
+
+    /**
+     * What {@link Config} did before {@link LayerMerger}: {@link ConfigObject#merge} then flatten.
+     */
+    private static Map<String, Object> mergeThenFlatten(final List<ConfigObject> layers) {
+        final ConfigObject merged = new ConfigObject()
+        layers.each { ConfigObject layer -> merged.merge(layer) }
+        final Map<String, Object> flattened = [:]
+        flatten(flattened, '', merged)
+        return flattened
+    }
+
+    private static void flatten(final Map<String, Object> flattened, final String keyPrefix, final ConfigObject co) {
+        co.each { Object key, Object value ->
+            if (value instanceof ConfigObject) {
+                flatten(flattened, keyPrefix + key + '.', (ConfigObject)value)
+            }
+            else {
+                flattened[keyPrefix + key] = value
+            }
+        }
+    }
+
+    private static Map<String, Object> layerMerger(final List<ConfigObject> layers) {
+        final LayerMerger merger = new LayerMerger()
+        layers.each { ConfigObject layer -> merger.merge(layer) }
+        final Map<String, Object> flattened = [:]
+        merger.forEach { String key, Object value -> flattened[key] = value }
+        return flattened
+    }
+
+    private static ConfigObject block(final Map entries) {
+        final ConfigObject co = new ConfigObject()
+        co.putAll(entries)
+        return co
+    }
+
+    void valueReplacesBlock() {
+        final List<ConfigObject> layers = [
+            block(db: block(url: 'u', pool: block(size: 1)), other: 1),
+            block(db: 'flat')
+        ]
+        assert [db: 'flat', other: 1] == layerMerger(layers)
+    }
+
+    void blockReplacesValue() {
+        final List<ConfigObject> layers = [
+            block(db: 'flat'),
+            block(db: block(url: 'u'))
+        ]
+        assert ['db.url': 'u'] == layerMerger(layers)
+    }
+
+    private static ConfigObject flat(final Map entries) {
+        final ConfigObject co = new FlatConfigObject()
+        co.putAll(entries)
+        return co
+    }
+
+    void flatDottedKeys() {
+        assert [db: 'flat'] == layerMerger([flat('db.pool.size': 1, 'db.url': 'u'), block(db: 'flat')])
+        assert ['db.pool.size': 1] == layerMerger([block(db: 'flat'), flat('db.pool.size': 1)])
+        assert ['db.pool': 'flat'] == layerMerger([block(db: block(pool: block(size: 1))), flat('db.pool': 'flat')])
+    }
+
+    void dottedKeys() {
+        final List<ConfigObject> layers = [block('log.level': 'INFO'), block('log.level.foo': 'DEBUG')]
+        assert ['log.level': 'INFO', 'log.level.foo': 'DEBUG'] == layerMerger(layers)
+        assert mergeThenFlatten(layers) == layerMerger(layers)
+    }
+
+    void mapsMerge() {
+        final List<ConfigObject> layers = [
+            block(m: [a: 1, n: [x: 1]], db: block(url: 'u')),
+            block(m: [b: 2, n: [y: 2]], db: [user: 'x'])
+        ]
+        assert [m: [a: 1, n: [x: 1, y: 2], b: 2], 'db.url': 'u', 'db.user': 'x'] == layerMerger(layers)
+    }
+
+    void layersNotModified() {
+        final Map<String, Object> map = [a: (Object)1]
+        final ConfigObject first = block(m: map)
+        layerMerger([first, block(m: [b: 2])])
+        assert [a: 1] == map
+    }
+
+    void sameAsMergeThenFlatten() {
+        final Random random = new Random(39)
+        200.times {
+            final long seed = random.nextLong()
+            // merge modifies the layers, each side gets its own
+            assert mergeThenFlatten(randomLayers(new Random(seed))) == layerMerger(randomLayers(new Random(seed)))
+        }
+    }
+
+    private static List<ConfigObject> randomLayers(final Random random) {
+        (0..<(1 + random.nextInt(4))).collect { randomBlock(random, 0) }
+    }
+
+    private static ConfigObject randomBlock(final Random random, final int depth) {
+        final ConfigObject co = new ConfigObject()
+        random.nextInt(5).times {
+            final String key = ['a', 'b', 'c', 'd.e', 'd.e.f'][random.nextInt(5)]
+            // a dotted key of a block would flatten to the same key as a nested one, which merge keeps apart
+            co.put(key, key.contains('.') ? randomValue(random, 4) : randomValue(random, depth + 1))
+        }
+        return co
+    }
+
+    private static Object randomValue(final Random random, final int depth) {
+        switch (random.nextInt(depth < 4 ? 6 : 3)) {
+            case 0: return random.nextInt(3)
+            case 1: return null
+            case 2: return [(random.nextInt(2)): random.nextInt(2)]
+            case 3: return new ConfigObject()
+            default: return randomBlock(random, depth)
+        }
+    }
+
+    /**
+     * {@code gradle benchmark}
+     */
+    @Test(groups = 'benchmark')
+    void benchmark() {
+        final int layerCount = 8
+        final List<ConfigObject> template = (0..<layerCount).collect { int layer -> wideBlock(layer, 0) }
+        final Map<String, Object> expected = mergeThenFlatten(template.collect { deepCopy(it) })
+        assert expected == layerMerger(template)
+        final int rounds = 50
+        long mergeNanos = 0
+        long mergerNanos = 0
+        (rounds * 2).times { int round ->
+            final List<ConfigObject> copies = template.collect { deepCopy(it) }    // merge modifies the layers
+            long start = System.nanoTime()
+            mergeThenFlatten(copies)
+            final long merge = System.nanoTime() - start
+            start = System.nanoTime()
+            layerMerger(template)
+            final long merger = System.nanoTime() - start
+            if (round >= rounds) {  // the first half warms up
+                mergeNanos += merge
+                mergerNanos += merger
+            }
+        }
+        final String result = "${expected.size()} keys from ${layerCount} layers: " +
+                              "merge then flatten ${(mergeNanos / rounds / 1_000_000).round(2)}ms, " +
+                              "LayerMerger ${(mergerNanos / rounds / 1_000_000).round(2)}ms"
+        Reporter.log(result)
+    }
+
+    private static ConfigObject wideBlock(final int layer, final int depth) {
+        final ConfigObject co = new ConfigObject()
+        (0..<8).each { int i ->
+            co.put("key${i}".toString(), depth < 3 ? wideBlock(layer, depth + 1) : "layer ${layer}".toString())
+        }
+        return co
+    }
+
+    private static ConfigObject deepCopy(final ConfigObject co) {
+        final ConfigObject copy = new ConfigObject()
+        co.each { Object key, Object value ->
+            copy.put(key, value instanceof ConfigObject ? deepCopy((ConfigObject)value) : value)
+        }
+        return copy
+    }
+
+}
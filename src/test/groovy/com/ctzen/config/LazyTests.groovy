@@ -0,0 +1,99 @@
+package com.ctzen.config
+
+import groovy.transform.CompileStatic
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.atomic.AtomicInteger
+
+import org.testng.annotations.Test
+
+import com.ctzen.config.exception.ConfigException
+
+/**
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class LazyTests {
+
+    private static Config newConfig() {
+        final Config config = new Config()
+        config.setLocations('class:com.ctzen.config.LazyTestsConfig')
+        config.load()
+        return config
+    }
+
+    void evaluatedOnce() {
+        final Config config = newConfig()
+        final AtomicInteger evaluations = (AtomicInteger)config.get('evaluations')
+        assert 0 == evaluations.get()
+        assert 'Hello lazy' == config.get('greeting')
+        assert 'Hello lazy' == config.get('greeting', 'default')
+        assert 1 == evaluations.get()
+    }
+
+    void evaluatedOnceConcurrently() {
+        final Config config = newConfig()
+        final AtomicInteger evaluations = (AtomicInteger)config.get('evaluations')
+        final ExecutorService executor = Executors.newFixedThreadPool(8)
+        try {
+            final List<Future<Object>> futures = (1..64).collect {
+                executor.submit({ config.get('greeting') } as Callable<Object>)
+            }
+            futures.each { assert 'Hello lazy' == it.get() }
+        }
+        finally {
+            executor.shutdown()
+        }
+        assert 1 == evaluations.get()
+    }
+
+    void redacted() {
+        final Config config = newConfig()
+        assert config.redactKeys.contains('secret')
+        assert 'hush' == config.get('secret')
+    }
+
+    @Test(expectedExceptions = ConfigException, expectedExceptionsMessageRegExp = "Error evaluating config key 'failing'")
+    void failing() {
+        newConfig().get('failing')
+    }
+
+    void lazyGStrings() {
+        final Config config = new Config()
+        config.setLazyGStrings(true)
+        config.setLocations('class:com.ctzen.config.LazyTestsConfig')
+        config.load()
+        assert 'I am lazy' == config.get('gstring')
+        assert 'I am lazy' == config.get('gstring')
+    }
+
+    void unchangedLazyGStrings() {
+        final Config config = new Config()
+        config.setLazyGStrings(true)
+        config.setLocations('class:com.ctzen.config.LazyTestsConfig')
+        config.load()
+        final Set<String> changedKeys = []
+        config.addChangeListener({ Config c, Set<String> keys -> changedKeys.addAll(keys) } as ConfigChangeListener)
+        config.load()
+        assert !changedKeys.isEmpty()   // closures are only equal to themselves
+        assert !changedKeys.contains('gstring')
+    }
+
+    void equalSources() {
+        final String name = 'lazy'
+        assert Lazy.of("I am ${name}") == Lazy.of("I am ${name}")
+        assert Lazy.of("I am ${name}") != Lazy.of("I am ${name + 1}")
+        final Closure<String> closure = { 'x' }
+        assert new Lazy<String>(closure) == new Lazy<String>(closure)
+        assert new Lazy<String>({ 'x' }) != new Lazy<String>({ 'x' })
+    }
+
+    void eagerGStrings() {
+        assert 'I am lazy' == newConfig().get('gstring')
+    }
+
+}
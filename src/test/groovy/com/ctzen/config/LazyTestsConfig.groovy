@@ -0,0 +1,18 @@
+package com.ctzen.config
+
+import java.util.concurrent.atomic.AtomicInteger
+
+def counter = new AtomicInteger()
+def name = 'lazy'
+
+evaluations = counter
+
+who = name
+
+greeting = new Lazy({ counter.incrementAndGet(); "Hello ${name}" })
+
+gstring = "I am ${who}"
+
+failing = new Lazy({ throw new IllegalStateException('boom') })
+
+secret = new Redact<>(new Lazy({ 'hush' }))
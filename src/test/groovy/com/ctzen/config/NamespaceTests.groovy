@@ -0,0 +1,150 @@
+package com.ctzen.config
+
+import groovy.transform.CompileStatic
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+import org.testng.annotations.AfterMethod
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import com.ctzen.config.exception.ConfigValidationException
+import com.ctzen.config.loader.GroovyScriptResourceLoader
+
+/**
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class NamespaceTests {
+
+    /**
+     * Counts loads by location.
+     */
+    private static class CountingLoader extends GroovyScriptResourceLoader {
+
+        final Map<String, AtomicInteger> loads = [:].withDefault { new AtomicInteger() } as Map<String, AtomicInteger>
+
+        @Override
+        List<ConfigObject> load(final String location, final List<String> profiles) {
+            synchronized (loads) {
+                loads[location].incrementAndGet()
+            }
+            return super.load(location, profiles)
+        }
+
+        int count(final String location) {
+            synchronized (loads) {
+                return loads.containsKey(location) ? loads[location].get() : 0
+            }
+        }
+
+    }
+
+    private Path base
+
+    private Path search
+
+    private Path billing
+
+    private CountingLoader loader
+
+    private Config config
+
+    @BeforeMethod
+    void setup() {
+        base = write('base', '''
+features.search.enabled = false
+app.name = 'app'
+''')
+        search = write('search', '''
+features.search.enabled = true
+features.search.limit = 10
+''')
+        billing = write('billing', '''
+features.billing.currency = 'USD'
+''')
+        loader = new CountingLoader()
+        config = new Config()
+        config.addLoaders(loader)
+        config.setLocations(location(base))
+        config.setNamespaces(['features.search.*': location(search), 'features.billing': location(billing)])
+        config.setLogLoadedValues(false)
+    }
+
+    @AfterMethod
+    void cleanup() {
+        [base, search, billing].each { Path path -> Files.delete(path) }
+    }
+
+    private static Path write(final String name, final String script) {
+        final Path path = Files.createTempFile("namespace-tests-${name}-", '.gy')
+        Files.write(path, script.bytes)
+        return path
+    }
+
+    private static String location(final Path path) {
+        return "file:${path.toFile().canonicalPath}".toString()
+    }
+
+    void loadedOnFirstRead() {
+        config.load()
+        assert 0 == loader.count(location(search))
+        assert !config.keySet().contains('features.search.limit')
+        assert 'app' == config.get('app.name')
+        assert 0 == loader.count(location(search))
+        assert 10 == config.get('features.search.limit')
+        assert config.get('features.search.enabled')      // over the other locations
+        assert 1 == loader.count(location(search))
+        assert config.containsKey('features.search.limit')
+        assert 1 == loader.count(location(search))
+        assert 0 == loader.count(location(billing))
+    }
+
+    void prefixBoundary() {
+        config.load()
+        assert 'none' == config.get('features.searching', 'none')
+        assert 0 == loader.count(location(search))
+        assert config.containsKey('features.billing.currency')
+        assert 1 == loader.count(location(billing))
+    }
+
+    void reloadReadNamespacesOnly() {
+        config.load()
+        config.get('features.search.limit')
+        config.load()
+        assert 2 == loader.count(location(search))
+        assert 0 == loader.count(location(billing))
+        assert 10 == config.get('features.search.limit')
+    }
+
+    void schemaRequiredKeys() {
+        config.setSchema(new ConfigSchema()
+            .require('app.name', String)
+            .require('features.search.limit', Integer, 1, 20)
+            .require('features.billing.**', Integer))
+        config.load()   // required keys of the namespaces not read are not missing
+        assert 10 == config.get('features.search.limit')
+        try {
+            config.get('features.billing.currency')
+            assert false: 'should fail'
+        }
+        catch (final ConfigValidationException e) {
+            assert e.violations == ['features.billing.currency: expected Integer, was String "USD"']
+        }
+    }
+
+    void concurrentFirstReads() {
+        config.load()
+        final List<CompletableFuture<Object>> reads = (1..16).collect {
+            CompletableFuture.supplyAsync { config.get('features.search.limit') }
+        }
+        reads.each { CompletableFuture<Object> read -> assert 10 == read.get(10, TimeUnit.SECONDS) }
+        assert 1 == loader.count(location(search))
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.ctzen.config
+
+import groovy.transform.CompileStatic
+
+import java.nio.file.Files
+
+import org.testng.Reporter
+import org.testng.annotations.Test
+
+/**
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class OverrideTests {
+
+    private static Config newConfig() {
+        final Config config = new Config()
+        config.setLocations('class:com.ctzen.config.LocationsLoadingTestsConfig')
+        config.load()
+        return config
+    }
+
+    void override() {
+        final Config config = newConfig()
+        config.override('foo', 'overridden')
+        config.override('new.key', 7)
+        assert 'overridden' == config.get('foo')
+        assert 7 == config.get('new.key')
+        assert ['foo': 'overridden', 'new.key': 7] == config.overrides
+    }
+
+    void clearOverride() {
+        final Config config = newConfig()
+        config.override('foo', 'overridden')
+        config.override('new.key', 7)
+        config.clearOverride('foo')
+        config.clearOverride('new.key')
+        assert 'I am class' == config.get('foo')
+        assert !config.containsKey('new.key')
+        assert config.overrides.isEmpty()
+    }
+
+    void clearOverrides() {
+        final Config config = newConfig()
+        final int size = config.size()
+        config.override('foo', 'overridden')
+        config.override('new.key', 7)
+        config.clearOverrides()
+        assert 'I am class' == config.get('foo')
+        assert size == config.size()
+    }
+
+    void redactOverride() {
+        final Config config = newConfig()
+        config.override('secret', new Redact<>('hush'))
+        assert 'hush' == config.get('secret')
+        assert config.redactKeys.contains('secret')
+    }
+
+    void survivesReload() {
+        final File f = File.createTempFile('slurper-configuration-test-', '.groovy')
+        Reporter.log(f.canonicalPath)
+        Files.write(f.toPath(), '''
+foo = 'foo-initial'
+bar = 'bar-initial'
+'''.bytes)
+        final Config config = new Config()
+        config.setLocations("file:${f.canonicalPath}")
+        config.load()
+        config.override('foo', 'overridden')
+        Files.write(f.toPath(), '''
+foo = 'foo-reloaded'
+bar = 'bar-reloaded'
+'''.bytes)
+        config.load()
+        assert 'overridden' == config.get('foo')
+        assert 'bar-reloaded' == config.get('bar')
+        config.clearOverride('foo')
+        assert 'foo-reloaded' == config.get('foo')
+    }
+
+    void listeners() {
+        final Config config = newConfig()
+        final List<Set<String>> events = []
+        final ConfigChangeListener listener = { Config c, Set<String> keys -> events.add(keys) } as ConfigChangeListener
+        config.addChangeListener(listener)
+        config.override('foo', 'overridden')
+        config.override('foo', 'overridden')    // no change, no event
+        config.override('new.key', 7)
+        config.clearOverride('foo')
+        config.clearOverride('no.such.key')     // no change, no event
+        config.load()                           // drops nothing but the new.key override is kept
+        config.clearOverrides()
+        config.removeChangeListener(listener)
+        config.override('foo', 'unheard')
+        assert [['foo'] as Set, ['new.key'] as Set, ['foo'] as Set, ['new.key'] as Set] == events
+    }
+
+}
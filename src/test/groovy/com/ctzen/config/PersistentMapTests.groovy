@@ -0,0 +1,93 @@
+package com.ctzen.config
+
+import groovy.transform.CompileDynamic
+import groovy.transform.CompileStatic
+
+import org.testng.annotations.Test
+
+/**
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class PersistentMapTests {
+
+    private static final int N = 10000
+
+    @CompileDynamic     // package-private field
+    private static PersistentMap empty() {
+        PersistentMap.EMPTY
+    }
+
+    private static PersistentMap build(final int n) {
+        final PersistentMap.Builder builder = empty().toBuilder()
+        for (int i = 0; i < n; ++i) {
+            builder.put("key.${i}".toString(), i)
+        }
+        return builder.build()
+    }
+
+    void builder() {
+        final PersistentMap map = build(N)
+        assert N == map.size()
+        for (int i = 0; i < N; ++i) {
+            assert i == map.get("key.${i}".toString(), null)
+        }
+        assert 'missing' == map.get('no.such.key', 'missing')
+        assert N == (map.keys() as Set).size()
+    }
+
+    void persistent() {
+        final PersistentMap map = build(N)
+        final PersistentMap plus = map.plus('key.1', 'one').plus('extra', null)
+        final PersistentMap minus = plus.minus('key.2')
+        assert 1 == map.get('key.1', null)
+        assert 'one' == plus.get('key.1', null)
+        assert plus.containsKey('extra')
+        assert null == plus.get('extra', 'missing')
+        assert !map.containsKey('extra')
+        assert N + 1 == plus.size()
+        assert N == minus.size()
+        assert !minus.containsKey('key.2')
+        assert plus.containsKey('key.2')
+        assert map.is(map.minus('no.such.key'))
+        assert map.is(map.plus('key.3', map.get('key.3', null)))
+    }
+
+    void builderDoesNotMutateSource() {
+        final PersistentMap map = build(100)
+        final PersistentMap.Builder builder = map.toBuilder()
+        builder.put('key.1', 'one').remove('key.2')
+        final PersistentMap built = builder.build()
+        builder.put('key.3', 'three')
+        final PersistentMap rebuilt = builder.build()
+        assert 1 == map.get('key.1', null)
+        assert map.containsKey('key.2')
+        assert 3 == built.get('key.3', null)
+        assert 'three' == rebuilt.get('key.3', null)
+        assert 99 == built.size()
+    }
+
+    void collisions() {
+        // 'Aa' and 'BB' have the same String.hashCode()
+        final PersistentMap map = empty().plus('Aa', 1).plus('BB', 2).plus('AaAa', 3).plus('BBBB', 4)
+        assert 4 == map.size()
+        assert 1 == map.get('Aa', null)
+        assert 2 == map.get('BB', null)
+        final PersistentMap minus = map.minus('Aa').minus('BBBB')
+        assert 2 == minus.size()
+        assert !minus.containsKey('Aa')
+        assert 2 == minus.get('BB', null)
+        assert 3 == minus.get('AaAa', null)
+    }
+
+    void removeAll() {
+        PersistentMap map = build(1000)
+        for (int i = 0; i < 1000; ++i) {
+            map = map.minus("key.${i}".toString())
+        }
+        assert map.empty
+        assert map.keys().empty
+    }
+
+}
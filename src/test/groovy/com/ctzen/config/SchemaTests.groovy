@@ -0,0 +1,129 @@
+package com.ctzen.config
+
+import groovy.transform.CompileStatic
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import org.testng.annotations.AfterMethod
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import com.ctzen.config.exception.ConfigValidationException
+
+/**
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class SchemaTests {
+
+    private Path path
+
+    private Config config
+
+    @BeforeMethod
+    void setup() {
+        path = Files.createTempFile('schema-tests-', '.gy')
+        config = new Config()
+        config.setLocations("file:${path.toFile().canonicalPath}".toString())
+        config.setLogLoadedValues(false)
+        config.setSchema(new ConfigSchema()
+            .require('db.url', String)
+            .require('pool.size', int, 1, 100)
+            .optional('feature.*', Boolean)
+            .optional('limits.**', Number, 0, null)
+            .optional('foo', String))
+    }
+
+    @AfterMethod
+    void cleanup() {
+        Files.delete(path)
+    }
+
+    private void load(final String script) {
+        Files.write(path, script.bytes)
+        config.load()
+    }
+
+    private static final String VALID = '''
+db.url = 'jdbc:h2:mem:'
+pool.size = 10
+feature.a = true
+limits.http.max = 2.5
+'''
+
+    void valid() {
+        load(VALID)
+        assert 10 == config.get('pool.size')
+    }
+
+    void allViolations() {
+        load(VALID)
+        try {
+            load('''
+pool.size = 'ten'
+feature.a = 'yes'
+feature.b.c = true
+limits.http.max = -1
+''')
+            assert false
+        }
+        catch (final ConfigValidationException e) {
+            assert [
+                'db.url: required key is missing',
+                'feature.a: expected Boolean, was String "yes"',
+                'limits.http.max: -1 is below min 0',
+                'pool.size: expected Integer, was String "ten"'
+            ] == e.violations
+        }
+        assert 10 == config.get('pool.size')
+        assert 1 == config.snapshot.version
+    }
+
+    void unknownKeys() {
+        config.setSchema(config.schema.setAllowUnknownKeys(false))
+        try {
+            load(VALID + "feature.b.c = true\n")
+            assert false
+        }
+        catch (final ConfigValidationException e) {
+            assert ['feature.b.c: unknown key'] == e.violations
+        }
+    }
+
+    void redacted() {
+        try {
+            load('''
+db.url = 'jdbc:h2:mem:'
+pool.size = new com.ctzen.config.Redact(1000)
+''')
+            assert false
+        }
+        catch (final ConfigValidationException e) {
+            assert ['pool.size: <redacted> is above max 100'] == e.violations
+        }
+    }
+
+    void override() {
+        load(VALID)
+        try {
+            config.override('pool.size', 0)
+            assert false
+        }
+        catch (final ConfigValidationException e) {
+            assert ['pool.size: 0 is below min 1'] == e.violations
+        }
+        assert config.overrides.isEmpty()
+        config.override('pool.size', 20)
+        assert 20 == config.get('pool.size')
+    }
+
+    void globToRegex() {
+        assert 'a.b.c'.matches(ConfigValidator.globToRegex('a.*.c'))
+        assert !'a.b.x.c'.matches(ConfigValidator.globToRegex('a.*.c'))
+        assert 'a.b.x.c'.matches(ConfigValidator.globToRegex('a.**.c'))
+        assert !'aXb'.matches(ConfigValidator.globToRegex('a.b'))
+    }
+
+}
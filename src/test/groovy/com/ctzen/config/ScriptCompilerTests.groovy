@@ -0,0 +1,89 @@
+package com.ctzen.config
+
+import groovy.transform.CompileStatic
+
+import java.time.Duration
+
+import org.codehaus.groovy.control.MultipleCompilationErrorsException
+import org.testng.annotations.Test
+
+import com.ctzen.config.exception.ConfigException
+import com.ctzen.config.loader.GroovyScriptResourceLoader
+import com.ctzen.config.loader.ScriptCompilerOptions
+
+/**
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class ScriptCompilerTests {
+
+    private static Config newConfig(final ScriptCompilerOptions options, final String location) {
+        final Config config = new Config()
+        config.addLoaders(new GroovyScriptResourceLoader(options))
+        config.setLocations(location)
+        return config
+    }
+
+    private static ScriptCompilerOptions allOptions() {
+        final ScriptCompilerOptions options = new ScriptCompilerOptions()
+        options.setCompileStaticMethods(true)
+        options.setAllowedImports(['java.time.Duration'])
+        options.setMaxIterations(10_000)
+        options.setTimeoutMillis(5_000)
+        return options
+    }
+
+    void allOptionsLoad() {
+        final Config config = newConfig(allOptions(), 'classpath:config/script-compiler-tests.gy')
+        config.setProfiles(ConfigProfile.DEV)
+        config.load()
+        assert 55 == config.get('total')
+        assert Duration.ofSeconds(5) == config.get('timeout')
+        assert [1, 4, 9] == config.get('squares')
+    }
+
+    @Test(expectedExceptions = ConfigException, expectedExceptionsMessageRegExp = 'Config script exceeded 10000 iterations')
+    void maxIterations() {
+        newConfig(allOptions(), 'classpath:config/script-compiler-tests-endless.gy').load()
+    }
+
+    @Test(expectedExceptions = ConfigException, expectedExceptionsMessageRegExp = 'Config script timed out')
+    void timeout() {
+        final ScriptCompilerOptions options = new ScriptCompilerOptions()
+        options.setTimeoutMillis(100)
+        newConfig(options, 'classpath:config/script-compiler-tests-endless.gy').load()
+    }
+
+    @Test(expectedExceptions = MultipleCompilationErrorsException)
+    void disallowedImport() {
+        newConfig(allOptions(), 'classpath:config/script-compiler-tests-import.gy').load()
+    }
+
+    @Test(expectedExceptions = MultipleCompilationErrorsException)
+    void compileStaticMethods() {
+        newConfig(allOptions(), 'classpath:config/script-compiler-tests-dynamic.gy').load()
+    }
+
+    void defaultOptions() {
+        final Config config = newConfig(new ScriptCompilerOptions(), 'classpath:config/script-compiler-tests-dynamic.gy')
+        config.load()
+        assert 1 == config.get('value')
+    }
+
+    void allowedReceivers() {
+        final ScriptCompilerOptions options = allOptions()
+        options.setAllowedReceivers([Object, Script, Duration, Integer, Range] as List<Class<?>>)
+        final Config config = newConfig(options, 'classpath:config/script-compiler-tests.gy')
+        config.load()
+        assert 5050 == config.get('total')
+    }
+
+    @Test(expectedExceptions = MultipleCompilationErrorsException)
+    void disallowedReceivers() {
+        final ScriptCompilerOptions options = allOptions()
+        options.setAllowedReceivers([Object, Script] as List<Class<?>>)
+        newConfig(options, 'classpath:config/script-compiler-tests.gy').load()
+    }
+
+}
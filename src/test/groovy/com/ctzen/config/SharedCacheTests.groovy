@@ -0,0 +1,166 @@
+package com.ctzen.config
+
+import groovy.transform.CompileStatic
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import javax.crypto.KeyGenerator
+import javax.crypto.SecretKey
+
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import org.springframework.core.io.DefaultResourceLoader
+
+import com.ctzen.config.exception.ConfigException
+import com.ctzen.config.loader.GroovyScriptClassLoader
+
+/**
+ * @author cchang
+ */
+@CompileStatic
+@Test(singleThreaded = true)
+class SharedCacheTests {
+
+    @BeforeMethod
+    void clear() {
+        SharedConfigCache.clear()
+    }
+
+    private static Config newConfig(final String... locations) {
+        final Config config = new Config()
+        config.setLocations(locations)
+        config.setSharedCache(true)
+        config.setLogLoadedValues(false)
+        return config
+    }
+
+    void identicalConfigsLoadOnce() {
+        final long misses = SharedConfigCache.missCount
+        final long hits = SharedConfigCache.hitCount
+        final Config first = newConfig('class:com.ctzen.config.RedactTestsConfig', 'classpath:config/test.properties')
+        first.load()
+        final Config second = newConfig('class:com.ctzen.config.RedactTestsConfig', 'classpath:config/test.properties')
+        second.load()
+        assert misses + 1 == SharedConfigCache.missCount
+        assert hits + 1 == SharedConfigCache.hitCount
+        assert first.keySet() == second.keySet()
+        assert 'redacted by config' == second.get('redactedByConfig')
+        assert second.redactKeys.contains('redactedByConfig')
+        assert second.stats.locations*.location == first.stats.locations*.location
+    }
+
+    void notSharedByDefault() {
+        final Config config = new Config()
+        config.setLocations('classpath:config/test.properties')
+        config.load()
+        assert 0 == SharedConfigCache.size()
+    }
+
+    void profilesAreKeys() {
+        final Config dev = newConfig('class:com.ctzen.config.RedactTestsConfig')
+        dev.setProfiles(ConfigProfile.DEV)
+        dev.load()
+        newConfig('class:com.ctzen.config.RedactTestsConfig').load()
+        assert 2 == SharedConfigCache.size()
+    }
+
+    void changedContent() {
+        final Path path = Files.createTempFile('shared-cache-tests-', '.gy')
+        try {
+            final String location = "file:${path.toFile().canonicalPath}".toString()
+            Files.write(path, "foo = 'one'".bytes)
+            final Config first = newConfig(location)
+            first.load()
+            Files.write(path, "foo = 'two'".bytes)
+            final Config second = newConfig(location)
+            second.load()
+            assert 'one' == first.get('foo')
+            assert 'two' == second.get('foo')
+            first.load()
+            assert 'two' == first.get('foo')
+        }
+        finally {
+            Files.delete(path)
+        }
+    }
+
+    void failuresNotCached() {
+        final Path path = Files.createTempFile('shared-cache-tests-', '.gy')
+        try {
+            final String location = "file:${path.toFile().canonicalPath}".toString()
+            Files.write(path, "foo = ".bytes)
+            try {
+                newConfig(location).load()
+                assert false
+            }
+            catch (final RuntimeException ignored) {
+            }
+            assert 0 == SharedConfigCache.size()
+        }
+        finally {
+            Files.delete(path)
+        }
+    }
+
+    void scriptClassFingerprints() {
+        final GroovyScriptClassLoader loader = new GroovyScriptClassLoader()
+        loader.setResourceLoader(new DefaultResourceLoader())
+        final String fingerprint = loader.fingerprint('class:com.ctzen.config.RedactTestsConfig', [])
+        assert fingerprint == loader.fingerprint('class:com.ctzen.config.RedactTestsConfig', [])
+        assert fingerprint.startsWith('com.ctzen.config.RedactTestsConfig#')
+        assert fingerprint != loader.fingerprint('class:com.ctzen.config.DeriveTestsConfig', [])
+    }
+
+    void encryptedValues() {
+        final KeyGenerator generator = KeyGenerator.getInstance('AES')
+        generator.init(128)
+        final SecretKey keyA = generator.generateKey()
+        final SecretKey keyB = generator.generateKey()
+        final Path path = Files.createTempFile('shared-cache-tests-', '.properties')
+        try {
+            final String location = "file:${path.toFile().canonicalPath}".toString()
+            Files.write(path, "password=ENC(${Encrypted.encrypt('hunter2', keyA)})\n".toString().bytes)
+            newConfig(location).load()
+            final Config cached = newConfig(location)
+            cached.load()
+            assert 1 == SharedConfigCache.size()
+            assert (cached.get('password') as String).startsWith('ENC(')     // no key source, a plain String
+            final Config a = newConfig(location)
+            a.setSecretKeySource({ -> keyA } as SecretKeySource)
+            a.load()
+            final Config b = newConfig(location)
+            b.setSecretKeySource({ -> keyB } as SecretKeySource)
+            b.load()
+            assert 1 == SharedConfigCache.size()     // not shared with a key source
+            assert 'hunter2' == a.get('password')
+            try {
+                b.get('password')
+                assert false: 'decrypted with the wrong key'
+            }
+            catch (final ConfigException e) {
+                assert e.message == "Error decrypting config key 'password'"
+            }
+        }
+        finally {
+            Files.delete(path)
+        }
+    }
+
+    void encryptedDecryptedPerKeySource() {
+        final KeyGenerator generator = KeyGenerator.getInstance('AES')
+        generator.init(128)
+        final SecretKey keyA = generator.generateKey()
+        final Encrypted encrypted = new Encrypted(Encrypted.encrypt('hunter2', keyA))
+        assert 'hunter2'.toCharArray() == encrypted.decrypt({ -> keyA } as SecretKeySource)
+        try {
+            encrypted.decrypt({ -> generator.generateKey() } as SecretKeySource)
+            assert false: 'plain text of another key source'
+        }
+        catch (final ConfigException e) {
+            assert !encrypted.isDecrypted()
+        }
+    }
+
+}
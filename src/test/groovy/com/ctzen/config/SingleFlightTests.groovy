@@ -0,0 +1,156 @@
+package com.ctzen.config
+
+import groovy.transform.CompileStatic
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+import org.testng.annotations.AfterMethod
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import com.ctzen.config.exception.ConfigException
+
+/**
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class SingleFlightTests {
+
+    /**
+     * Counts loads, the first load waits for {@link #release}.
+     */
+    private static class BlockingLoader implements ConfigLoader {
+
+        final AtomicInteger loads = new AtomicInteger()
+
+        final CountDownLatch started = new CountDownLatch(1)
+
+        final CountDownLatch release = new CountDownLatch(1)
+
+        volatile boolean fail
+
+        @Override
+        boolean handles(final String location) {
+            return location.startsWith('blocking:')
+        }
+
+        @Override
+        List<ConfigObject> load(final String location, final List<String> profiles) {
+            final int count = loads.incrementAndGet()
+            started.countDown()
+            release.await(10, TimeUnit.SECONDS)
+            if (fail) {
+                throw new ConfigException('failed load')
+            }
+            final ConfigObject configObject = new ConfigObject()
+            configObject.put('count', count)
+            return [configObject]
+        }
+
+    }
+
+    private BlockingLoader loader
+
+    private Config config
+
+    private ExecutorService executor
+
+    @BeforeMethod
+    void setup() {
+        loader = new BlockingLoader()
+        config = new Config()
+        config.addLoaders(loader)
+        config.setLocations('blocking:')
+        config.setLogLoadedValues(false)
+        executor = Executors.newCachedThreadPool()
+    }
+
+    @AfterMethod
+    void cleanup() {
+        executor.shutdownNow()
+    }
+
+    void singleLoad() {
+        loader.release.countDown()
+        assert config.getSnapshot().getVersion() + 1 == config.loadAsync(executor).get(10, TimeUnit.SECONDS)
+        assert 1 == loader.loads.get()
+        assert 1 == config.get('count')
+    }
+
+    void coalesced() {
+        final CompletableFuture<Long> first = config.loadAsync(executor)
+        assert loader.started.await(10, TimeUnit.SECONDS)
+        final List<CompletableFuture<Long>> followUps = (1..100).collect { config.loadAsync(executor) }
+        assert followUps.every { it.is(followUps[0]) }
+        assert !first.is(followUps[0])
+        assert 1 == first.getNumberOfDependents()   // only the follow-up start
+        loader.release.countDown()
+        final long firstVersion = first.get(10, TimeUnit.SECONDS)
+        assert firstVersion + 1 == followUps[0].get(10, TimeUnit.SECONDS)
+        assert 2 == loader.loads.get()
+        assert 2 == config.get('count')
+    }
+
+    void syncJoinsFollowUp() {
+        final CompletableFuture<Long> first = config.loadAsync(executor)
+        assert loader.started.await(10, TimeUnit.SECONDS)
+        final CompletableFuture<Long> followUp = config.loadAsync(executor)
+        final List<CompletableFuture<Void>> callers = (1..10).collect {
+            CompletableFuture.runAsync({ config.load() } as Runnable, executor)
+        }
+        // the follow-up and each caller joined to it wait on the running load
+        final long deadline = System.currentTimeMillis() + 10000
+        while (first.getNumberOfDependents() < 11 && System.currentTimeMillis() < deadline) {
+            Thread.yield()
+        }
+        assert 11 == first.getNumberOfDependents()
+        loader.release.countDown()
+        CompletableFuture.allOf(callers as CompletableFuture[]).get(10, TimeUnit.SECONDS)
+        assert first.get() + 1 == followUp.get(10, TimeUnit.SECONDS)
+        assert 2 == loader.loads.get()
+    }
+
+    void completedOutsideLoadLock() {
+        final CompletableFuture<Boolean> reloaded = config.loadAsync(executor).thenApply { Long version ->
+            // would deadlock if the load lock were still held
+            final Thread reloader = new Thread({ config.reloadLocation('blocking:') } as Runnable)
+            reloader.start()
+            reloader.join(10000)
+            return !reloader.isAlive()
+        }
+        loader.release.countDown()
+        assert reloaded.get(20, TimeUnit.SECONDS)
+        assert 2 == loader.loads.get()
+    }
+
+    void failedLoad() {
+        loader.fail = true
+        loader.release.countDown()
+        final CompletableFuture<Long> future = config.loadAsync(executor)
+        try {
+            future.get(10, TimeUnit.SECONDS)
+            assert false
+        }
+        catch (final ExecutionException e) {
+            assert e.cause instanceof ConfigException
+        }
+        loader.fail = false
+        config.load()
+        assert 2 == config.get('count')
+    }
+
+    @Test(expectedExceptions = ConfigException)
+    void syncFailure() {
+        loader.fail = true
+        loader.release.countDown()
+        config.load()
+    }
+
+}
@@ -0,0 +1,205 @@
+package com.ctzen.config
+
+import groovy.transform.CompileStatic
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import javax.crypto.KeyGenerator
+import javax.crypto.SecretKey
+
+import org.testng.annotations.AfterMethod
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import com.ctzen.config.exception.ConfigException
+import com.ctzen.config.exception.ConfigValidationException
+
+/**
+ * Snapshots published to, and subscribed from, a shared directory.
+ *
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class SnapshotPublishTests {
+
+    private Path directory
+
+    private Path script
+
+    private Config publisher
+
+    private Config subscriber
+
+    @BeforeMethod
+    void setup() {
+        directory = Files.createTempDirectory('snapshot-publish-tests-')
+        script = Files.createTempFile('snapshot-publish-tests-', '.gy')
+        write("gen = 1")
+        publisher = new Config()
+        publisher.setLocations('classpath:config/streaming-tests.json', "file:${script.toFile().canonicalPath}".toString())
+        publisher.setProfiles(ConfigProfile.PROD)
+        publisher.setLogLoadedValues(false)
+        publisher.setPublishDirectory(directory)
+        subscriber = new Config()
+        subscriber.setLogLoadedValues(false)
+        subscriber.setSubscribeDirectory(directory)
+    }
+
+    @AfterMethod
+    void cleanup() {
+        subscriber.destroy()
+        Files.delete(script)
+        directory.toFile().deleteDir()
+    }
+
+    private void write(final String text) {
+        Files.write(script, text.bytes)
+    }
+
+    void subscribed() {
+        publisher.load()
+        subscriber.load()
+        assert publisher.keySet() == subscriber.keySet()
+        publisher.keySet().each { String key ->
+            assert publisher.get(key) == subscriber.get(key): key
+        }
+        assert 'I am prod json' == subscriber.get('app.name')
+        assert subscriber.get('app.size') instanceof Integer
+        assert subscriber.get('app.big') instanceof Long
+        assert subscriber.get('app.ratio') instanceof BigDecimal
+        assert [[host: 'h1', port: 80], [host: 'h2', port: 81]] == subscriber.get('app.servers')
+        assert [ConfigProfile.PROD] == subscriber.getSnapshot().getProfiles()
+    }
+
+    void encrypted() {
+        final KeyGenerator generator = KeyGenerator.getInstance('AES')
+        generator.init(128)
+        final SecretKey key = generator.generateKey()
+        write("""
+import com.ctzen.config.Encrypted
+db.password = new Encrypted('${Encrypted.encrypt('s3cret', key)}')
+""")
+        publisher.load()
+        subscriber.setSecretKeySource({ -> key } as SecretKeySource)
+        subscriber.load()
+        assert 's3cret' == subscriber.get('db.password')
+        assert subscriber.getRedactKeys().contains('db.password')
+    }
+
+    void reloadedOnPublish() {
+        publisher.load()
+        subscriber.load()
+        assert 1 == subscriber.get('gen')
+        write("gen = 2")
+        publisher.load()
+        final long deadline = System.currentTimeMillis() + 30000
+        while (subscriber.get('gen') != 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50)
+        }
+        assert 2 == subscriber.get('gen')
+    }
+
+    void unchangedValuesAreEqual() {
+        publisher.load()
+        subscriber.load()
+        final List<Set<String>> changes = []
+        subscriber.addChangeListener({ Config config, Set<String> changedKeys ->
+            changes << changedKeys
+        } as ConfigChangeListener)
+        write("gen = 2")
+        publisher.load()
+        subscriber.load()
+        subscriber.load()   // the watcher may load too
+        assert [['gen'] as Set] == changes.findAll { Set<String> changedKeys -> !changedKeys.isEmpty() }
+    }
+
+    void decodedValues() {
+        publisher.load()
+        subscriber.load()
+        assert 'I am prod json' == subscriber.getSnapshot().get('app.name')
+        assert 1.5G == subscriber.getSnapshot().get('app.ratio')
+        assert subscriber.getSnapshot().get('app.servers') instanceof List
+        assert subscriber.dumpRedacted().contains('app.name (String) = I am prod json')
+    }
+
+    void schemaChecked() {
+        publisher.load()
+        subscriber.setSchema(new ConfigSchema()
+            .require('app.name', String)
+            .require('app.ratio', BigDecimal, 0, 1))
+        try {
+            subscriber.load()
+            assert false: 'should fail'
+        }
+        catch (final ConfigValidationException e) {
+            assert e.violations == ['app.ratio: 1.5 is above max 1']
+        }
+        subscriber.setSchema(new ConfigSchema().require('app.name', Integer))
+        try {
+            subscriber.load()
+            assert false: 'should fail'
+        }
+        catch (final ConfigValidationException e) {
+            assert e.violations[0].startsWith('app.name: expected Integer, was String')
+        }
+    }
+
+    void namespacesNotLoaded() {
+        publisher.load()
+        subscriber.setNamespaces([app: 'classpath:config/test.properties'])
+        subscriber.load()
+        final long version = subscriber.getSnapshot().getVersion()
+        assert 'I am prod json' == subscriber.get('app.name')
+        assert version == subscriber.getSnapshot().getVersion()
+        assert publisher.keySet() == subscriber.keySet()
+    }
+
+    @Test(expectedExceptions = ConfigException, expectedExceptionsMessageRegExp = 'Cannot reload a location.*')
+    void reloadLocationRejected() {
+        publisher.load()
+        subscriber.load()
+        subscriber.reloadLocation('classpath:config/streaming-tests.json')
+    }
+
+    void keepsNewest() {
+        (1..5).each { int gen ->
+            write("gen = ${gen}")
+            publisher.load()
+        }
+        final List<Path> files = SnapshotFiles.files(directory)
+        assert 3 == files.size()
+        assert files[0].fileName.toString() == 'snapshot-0000000000000000005.scfg'
+    }
+
+    void corruptSkipped() {
+        publisher.load()
+        final Path newest = SnapshotFiles.files(directory)[0]
+        final byte[] bytes = Files.readAllBytes(newest)
+        final int middle = bytes.length.intdiv(2) as int
+        bytes[middle] = (byte)(bytes[middle] ^ 1)
+        Files.write(directory.resolve('snapshot-0000000000000000009.scfg'), bytes)
+        subscriber.load()
+        assert 1 == subscriber.get('gen')
+    }
+
+    @Test(expectedExceptions = ConfigException, expectedExceptionsMessageRegExp = 'No snapshot in .*')
+    void noSnapshot() {
+        subscriber.load()
+    }
+
+    void unsupportedType() {
+        write("gen = new java.util.Date()")
+        try {
+            publisher.load()
+            assert false: 'should fail'
+        }
+        catch (final ConfigException e) {
+            assert e.message.contains("'gen', unsupported type java.util.Date")
+        }
+        assert SnapshotFiles.files(directory).isEmpty()
+        assert !publisher.containsKey('gen')
+    }
+
+}
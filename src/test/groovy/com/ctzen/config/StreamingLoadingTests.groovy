@@ -0,0 +1,105 @@
+package com.ctzen.config
+
+import groovy.transform.CompileStatic
+
+import org.testng.annotations.DataProvider
+import org.testng.annotations.Test
+
+import com.ctzen.config.exception.ConfigException
+
+/**
+ * JSON and YAML loaders.
+ *
+ * @author cchang
+ */
+@CompileStatic
+@Test
+class StreamingLoadingTests {
+
+    private static Config load(final String location, final String... profiles) {
+        return load([location], profiles)
+    }
+
+    private static Config load(final List<String> locations, final String... profiles) {
+        final Config config = new Config()
+        config.setLocations(locations)
+        config.setProfiles(profiles)
+        config.setLogLoadedValues(false)
+        config.load()
+        return config
+    }
+
+    @DataProvider
+    Object[][] locations() {
+        return [['classpath:config/streaming-tests.json', 'json'] as Object[],
+                ['classpath:config/streaming-tests.yaml', 'yaml'] as Object[]] as Object[][]
+    }
+
+    @Test(dataProvider = 'locations')
+    void flattened(final String location, final String format) {
+        final Config config = load(location)
+        assert "I am base ${format}".toString() == config.get('app.name')
+        assert 10 == config.get('app.size')
+        assert config.get('app.size') instanceof Integer
+        assert 12345678901L == config.get('app.big')
+        assert 1.5G == config.get('app.ratio')
+        assert config.get('app.enabled')
+        assert config.containsKey('app.nothing')
+        assert null == config.get('app.nothing')
+        assert ['a', 'b', 3] == config.get('app.tags')
+        assert [[host: 'h1', port: 80], [host: 'h2', port: 81]] == config.get('app.servers')
+        assert 8 == config.get('db.pool.size')
+    }
+
+    @Test(dataProvider = 'locations')
+    void profile(final String location, final String format) {
+        final Config config = load(location, ConfigProfile.PROD)
+        assert "I am prod ${format}".toString() == config.get('app.name')
+        assert 10 == config.get('app.size')
+    }
+
+    void json() {
+        final Config config = load('classpath:config/streaming-tests.json')
+        assert 'tab\there é' == config.get('app.escaped')
+        assert !config.keySet().any { String key -> key.startsWith('app.empty') }
+    }
+
+    void yaml() {
+        final Config config = load('classpath:config/streaming-tests.yaml')
+        assert 31 == config.get('app.hex')
+        assert "it's # not a comment" == config.get('app.quoted')
+        assert 'tab\there' == config.get('app.escaped')
+        assert 'http://example.com:8080/path' == config.get('app.url')
+        assert ['a', 2] == config.get('app.list')
+        assert 'line 1\n  line 2\n' == config.get('app.literal')
+        assert 'folded text' == config.get('app.folded')
+        assert 1 == config.get('app.inline.x')
+        assert 'two' == config.get('app.inline.y.z')
+        assert 'yes' == config.get('quoted key')
+    }
+
+    @Test(dataProvider = 'locations')
+    void valueReplacesBlock(final String location, final String format) {
+        final Config config = load([location, 'classpath:config/streaming-tests-flat.properties'])
+        assert 'flat' == config.get('db')
+        assert ['db'] == config.keySet().findAll { String key -> key.startsWith('db') }.toList()
+    }
+
+    @Test(dataProvider = 'locations')
+    void blockReplacesValue(final String location, final String format) {
+        final Config config = load(['classpath:config/streaming-tests-flat.properties', location])
+        assert 8 == config.get('db.pool.size')
+        assert !config.containsKey('db')
+    }
+
+    @Test(expectedExceptions = ConfigException, expectedExceptionsMessageRegExp = '.*line 3.*')
+    void badYaml() {
+        load('classpath:config/streaming-tests-bad.yaml')
+    }
+
+    @Test(expectedExceptions = ConfigException, expectedExceptionsMessageRegExp = '.*line 1 column 22.*')
+    void badJson() {
+        load('classpath:config/streaming-tests-bad.json')
+    }
+
+}
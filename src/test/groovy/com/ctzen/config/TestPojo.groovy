@@ -1,5 +1,7 @@
 package com.ctzen.config
 
+import java.util.concurrent.TimeUnit
+
 /**
  * @author cchang
  */
@@ -7,4 +9,22 @@ class TestPojo {
 
     String name
 
+    int size
+
+    boolean enabled
+
+    TimeUnit unit
+
+    List<String> tags
+
+    Pool pool
+
+    static class Pool {
+
+        int size
+
+        long timeout
+
+    }
+
 }